@@ -0,0 +1,15 @@
+#!/bin/sh
+# Builds the app and the benchmark jar, then runs JMH with the GC profiler.
+#   ./run.sh                 -> results/latest.json
+#   ./run.sh baseline        -> results/baseline.json (commit it after a run on the target hardware)
+#   ./run.sh latest Codec    -> only benchmarks matching the regex
+# The Redis stream benchmark needs a live Redis; run it with REDIS_URL set and "RedisStream" as filter.
+set -e
+cd "$(dirname "$0")"
+name=${1:-latest}
+filter=${2:-'^(?!.*RedisStream).*'}
+
+../mvnw -q -f ../pom.xml install -DskipTests
+../mvnw -q package
+java -Dredis.url="${REDIS_URL:-redis://localhost:6379}" -jar target/benchmarks.jar "$filter" \
+    -prof gc -rf json -rff "results/$name.json"
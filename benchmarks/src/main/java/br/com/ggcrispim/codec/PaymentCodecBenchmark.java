@@ -0,0 +1,67 @@
+package br.com.ggcrispim.codec;
+
+import br.com.ggcrispim.dto.PaymentRequest;
+import io.vertx.core.buffer.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A payment's round trip through the hot-path codecs: the 32-byte stream entry written
+ * by {@code PaymentStreamProducer} and read by the consumer lanes, and the JSON read on
+ * {@code POST /payments} and written to the processors.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PaymentCodecBenchmark {
+
+    private PaymentRequest paymentRequest;
+    private byte[] streamEntry;
+    private byte[] requestJson;
+
+    @Setup
+    public void setup() {
+        paymentRequest = new PaymentRequest(UUID.randomUUID().toString(), 19.90,
+                LocalDateTime.now(ZoneOffset.UTC));
+        streamEntry = PaymentStreamCodec.encode(paymentRequest);
+        requestJson = ("{\"correlationId\":\"" + paymentRequest.getCorrelationId() + "\",\"amount\":19.90}")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] encodeStreamEntry() {
+        return PaymentStreamCodec.encode(paymentRequest);
+    }
+
+    @Benchmark
+    public PaymentRequest decodeStreamEntry() {
+        return PaymentStreamCodec.decode(streamEntry);
+    }
+
+    @Benchmark
+    public PaymentRequest decodeRequestJson() {
+        return PaymentJsonCodec.decodePaymentRequest(requestJson);
+    }
+
+    @Benchmark
+    public Buffer encodeProcessorJson() {
+        return PaymentJsonCodec.encodePaymentRequest(paymentRequest);
+    }
+}
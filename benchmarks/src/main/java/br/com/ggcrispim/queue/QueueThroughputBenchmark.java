@@ -0,0 +1,109 @@
+package br.com.ggcrispim.queue;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handoff throughput of the in-process queue backend: the {@link RingBuffer} behind
+ * {@link InMemoryPaymentQueue} against the JDK's {@link ArrayBlockingQueue}, with two
+ * request threads offering and four consumer lanes polling, as in the compose setup.
+ * {@link RedisStreamThroughputBenchmark} measures the Redis backend for comparison.
+ *
+ * <p>With more pollers than offerers the queue is empty most of the time, so the raw
+ * group score mostly counts empty polls. Compare the {@code :polled} secondary result
+ * instead: the {@link Transfers} counters only count payments that actually changed
+ * hands ({@code :offered} only offers that found room).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class QueueThroughputBenchmark {
+
+    private static final Object PAYMENT = new Object();
+    private static final int CAPACITY = 65536;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Transfers {
+
+        public long offered;
+        public long polled;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            offered = 0;
+            polled = 0;
+        }
+    }
+
+    private RingBuffer<Object> ringBuffer;
+    private ArrayBlockingQueue<Object> blockingQueue;
+
+    @Setup
+    public void setup() {
+        ringBuffer = new RingBuffer<>(CAPACITY);
+        blockingQueue = new ArrayBlockingQueue<>(CAPACITY);
+    }
+
+    @Benchmark
+    @Group("ringBuffer")
+    @GroupThreads(2)
+    public boolean ringBufferOffer(Transfers transfers) {
+        boolean offered = ringBuffer.offer(PAYMENT);
+        if (offered) {
+            transfers.offered++;
+        }
+        return offered;
+    }
+
+    @Benchmark
+    @Group("ringBuffer")
+    @GroupThreads(4)
+    public Object ringBufferPoll(Transfers transfers) {
+        Object payment = ringBuffer.poll();
+        if (payment != null) {
+            transfers.polled++;
+        }
+        return payment;
+    }
+
+    @Benchmark
+    @Group("blockingQueue")
+    @GroupThreads(2)
+    public boolean blockingQueueOffer(Transfers transfers) {
+        boolean offered = blockingQueue.offer(PAYMENT);
+        if (offered) {
+            transfers.offered++;
+        }
+        return offered;
+    }
+
+    @Benchmark
+    @Group("blockingQueue")
+    @GroupThreads(4)
+    public Object blockingQueuePoll(Transfers transfers) {
+        Object payment = blockingQueue.poll();
+        if (payment != null) {
+            transfers.polled++;
+        }
+        return payment;
+    }
+}
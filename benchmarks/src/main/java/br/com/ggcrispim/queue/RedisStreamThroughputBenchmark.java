@@ -0,0 +1,106 @@
+package br.com.ggcrispim.queue;
+
+import br.com.ggcrispim.codec.PaymentStreamCodec;
+import br.com.ggcrispim.dto.PaymentRequest;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.redis.client.Command;
+import io.vertx.redis.client.ProtocolVersion;
+import io.vertx.redis.client.Redis;
+import io.vertx.redis.client.RedisAPI;
+import io.vertx.redis.client.RedisOptions;
+import io.vertx.redis.client.Request;
+import io.vertx.redis.client.Response;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Redis backend's cost per payment: a pipelined batch of XADDs (as the coalescing
+ * producer sends them), one XREADGROUP and one XACK for the batch. Needs a live Redis
+ * ({@code -Dredis.url=redis://localhost:6379}) and uses its own stream key, so it is
+ * excluded from the default run.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RedisStreamThroughputBenchmark {
+
+    private static final String STREAM = "payments:benchmark";
+    private static final String GROUP = "benchmark";
+    private static final int BATCH = 64;
+
+    private Vertx vertx;
+    private Redis redis;
+    private List<Request> batch;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        vertx = Vertx.vertx();
+        // RESP2 keeps the XREADGROUP reply a plain [[stream, [[id, fields]...]]] array
+        redis = Redis.createClient(vertx, new RedisOptions()
+                .setConnectionString(System.getProperty("redis.url", "redis://localhost:6379"))
+                .setPreferredProtocolVersion(ProtocolVersion.RESP2));
+        RedisAPI api = RedisAPI.api(redis);
+        await(api.del(List.of(STREAM)));
+        await(api.xgroup(List.of("CREATE", STREAM, GROUP, "0", "MKSTREAM")));
+
+        PaymentRequest paymentRequest = new PaymentRequest(UUID.randomUUID().toString(), 19.90,
+                LocalDateTime.now(ZoneOffset.UTC));
+        Buffer entry = Buffer.buffer(PaymentStreamCodec.encode(paymentRequest));
+        batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            batch.add(Request.cmd(Command.XADD).arg(STREAM).arg("*").arg(PaymentStreamCodec.FIELD).arg(entry));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        await(RedisAPI.api(redis).del(List.of(STREAM)));
+        redis.close();
+        await(vertx.close());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int enqueueReadAck() throws Exception {
+        await(redis.batch(batch));
+        Response read = await(redis.send(Request.cmd(Command.XREADGROUP)
+                .arg("GROUP").arg(GROUP).arg("benchmark-1")
+                .arg("COUNT").arg(BATCH)
+                .arg("STREAMS").arg(STREAM).arg(">")));
+        Request ack = Request.cmd(Command.XACK).arg(STREAM).arg(GROUP);
+        Response entries = read.get(0).get(1);
+        for (Response message : entries) {
+            ack.arg(message.get(0).toString());
+        }
+        await(redis.send(ack));
+        await(redis.send(Request.cmd(Command.XTRIM).arg(STREAM).arg("MAXLEN").arg(0)));
+        return entries.size();
+    }
+
+    private static <T> T await(Future<T> future) throws Exception {
+        return future.toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,60 @@
+package br.com.ggcrispim.queue;
+
+import br.com.ggcrispim.codec.PaymentStreamCodec;
+import br.com.ggcrispim.dto.PaymentRequest;
+import io.quarkus.redis.datasource.stream.StreamMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filtering and decoding one XREADGROUP batch into {@link QueuedPayment}s, as
+ * {@link RedisStreamPaymentQueue} does before handing it to a consumer lane. The batch
+ * holds one "init" marker so the discard path is exercised too.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StreamDecodeBenchmark {
+
+    @Param({"30", "100"})
+    int batchSize;
+
+    private List<StreamMessage<String, String, byte[]>> messages;
+
+    @Setup
+    public void setup() {
+        messages = new ArrayList<>(batchSize);
+        messages.add(new StreamMessage<>(RedisStreamPaymentQueue.PAYMENT_STREAM, "0-1", Map.of("init", new byte[0])));
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        for (int i = 1; i < batchSize; i++) {
+            PaymentRequest paymentRequest = new PaymentRequest(UUID.randomUUID().toString(), 19.90, now);
+            messages.add(new StreamMessage<>(RedisStreamPaymentQueue.PAYMENT_STREAM, "1-" + i,
+                    Map.of(PaymentStreamCodec.FIELD, PaymentStreamCodec.encode(paymentRequest))));
+        }
+    }
+
+    @Benchmark
+    public List<QueuedPayment> decodeBatch() {
+        return RedisStreamPaymentQueue.decode(messages, new ArrayList<>());
+    }
+}
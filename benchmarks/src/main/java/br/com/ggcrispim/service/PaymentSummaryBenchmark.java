@@ -0,0 +1,83 @@
+package br.com.ggcrispim.service;
+
+import br.com.ggcrispim.codec.PaymentJsonCodec;
+import br.com.ggcrispim.dto.PaymentSummary;
+import br.com.ggcrispim.model.PaymentStrategy;
+import io.vertx.core.buffer.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code GET /payments-summary} without I/O: parsing the query dates, answering from
+ * the in-process {@link PaymentAggregateIndex} and writing the response JSON, plus the
+ * cost of recording a payment into the index on the consume path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PaymentSummaryBenchmark {
+
+    @Param({"10000", "1000000"})
+    int payments;
+
+    private PaymentAggregateIndex index;
+    private String from;
+    private String to;
+    private LocalDateTime fromDate;
+    private LocalDateTime toDate;
+    private long now;
+
+    @Setup
+    public void setup() {
+        index = new PaymentAggregateIndex(Duration.ofMillis(10), 65536, 8);
+        now = System.currentTimeMillis();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < payments; i++) {
+            PaymentStrategy strategy = random.nextInt(10) == 0 ? PaymentStrategy.FALLBACK : PaymentStrategy.DEFAULT;
+            index.record(strategy, now - random.nextLong(60_000), 1990);
+        }
+        from = Instant.ofEpochMilli(now - 45_000).toString();
+        to = Instant.ofEpochMilli(now - 5_000).toString();
+        fromDate = PaymentSummaryService.parseDate(from, null);
+        toDate = PaymentSummaryService.parseDate(to, null);
+    }
+
+    @Benchmark
+    public LocalDateTime parseDate() {
+        return PaymentSummaryService.parseDate(from, null);
+    }
+
+    @Benchmark
+    public PaymentSummary summarize() {
+        return index.summarize(fromDate, toDate);
+    }
+
+    @Benchmark
+    public Buffer summarizeEndToEnd() {
+        return PaymentJsonCodec.encodePaymentSummary(
+                index.summarize(PaymentSummaryService.parseDate(from, null), PaymentSummaryService.parseDate(to, null)));
+    }
+
+    @Benchmark
+    public void record() {
+        index.record(PaymentStrategy.DEFAULT, now - 1_000, 1990);
+    }
+}
@@ -0,0 +1,102 @@
+#!/usr/bin/env bash
+# Starts the app, asserts its time to first request, then drives it with the load
+# harness and asserts its peak RSS once warm. Exits 1 when a budget is missed.
+#
+#   loadtest/budget-check.sh target/rinha-backend-1.0.0-SNAPSHOT-runner
+#   loadtest/budget-check.sh java -jar target/quarkus-app/quarkus-run.jar
+#
+# Budgets and options (environment):
+#   STARTUP_BUDGET_MS  time from launch to the first 200 on /payments-summary (default 1500)
+#   RSS_BUDGET_MB      peak resident set size after warmup (default 100)
+#   APP_URL            where the app listens (default http://localhost:9999, the loadtest profile)
+#   LOAD_ARGS          harness options (default --rate=500 --duration=30s)
+#   WARMUP_SECONDS     RSS samples taken before this are ignored (default 10)
+set -u
+
+STARTUP_BUDGET_MS=${STARTUP_BUDGET_MS:-1500}
+RSS_BUDGET_MB=${RSS_BUDGET_MB:-100}
+APP_URL=${APP_URL:-http://localhost:9999}
+LOAD_ARGS=${LOAD_ARGS:---rate=500 --duration=30s}
+WARMUP_SECONDS=${WARMUP_SECONDS:-10}
+HARNESS_JAR="$(dirname "$0")/target/loadtest.jar"
+
+if [ $# -eq 0 ]; then
+    echo "usage: $0 <command that starts the app>" >&2
+    exit 2
+fi
+if [ ! -f "$HARNESS_JAR" ]; then
+    echo "missing $HARNESS_JAR, build it with: cd loadtest && ../mvnw -q package" >&2
+    exit 2
+fi
+
+now_ms() {
+    echo $(( $(date +%s%N) / 1000000 ))
+}
+
+rss_kb() {
+    awk '/^VmRSS:/ { print $2 }' "/proc/$1/status" 2>/dev/null
+}
+
+failed=0
+started=$(now_ms)
+"$@" > budget-check-app.log 2>&1 &
+app=$!
+trap 'kill "$app" 2>/dev/null; wait "$app" 2>/dev/null' EXIT
+
+summary_url="$APP_URL/payments-summary?from=2000-01-01T00:00:00.000Z&to=2000-01-01T00:00:01.000Z"
+ready=""
+while kill -0 "$app" 2>/dev/null; do
+    if [ "$(curl -s -o /dev/null -w '%{http_code}' "$summary_url")" = "200" ]; then
+        ready=$(now_ms)
+        break
+    fi
+    if [ $(( $(now_ms) - started )) -gt 60000 ]; then
+        break
+    fi
+    sleep 0.01
+done
+if [ -z "$ready" ]; then
+    echo "FAIL app never answered, see budget-check-app.log"
+    exit 1
+fi
+
+startup_ms=$(( ready - started ))
+if [ "$startup_ms" -le "$STARTUP_BUDGET_MS" ]; then
+    echo "ok   time to first request ${startup_ms}ms (budget ${STARTUP_BUDGET_MS}ms)"
+else
+    echo "FAIL time to first request ${startup_ms}ms (budget ${STARTUP_BUDGET_MS}ms)"
+    failed=1
+fi
+
+# shellcheck disable=SC2086
+java -jar "$HARNESS_JAR" --app="$APP_URL" $LOAD_ARGS > budget-check-load.log 2>&1 &
+harness=$!
+peak_kb=0
+elapsed=0
+while kill -0 "$harness" 2>/dev/null; do
+    sleep 1
+    elapsed=$(( elapsed + 1 ))
+    current=$(rss_kb "$app")
+    if [ "$elapsed" -gt "$WARMUP_SECONDS" ] && [ -n "$current" ] && [ "$current" -gt "$peak_kb" ]; then
+        peak_kb=$current
+    fi
+done
+wait "$harness"
+harness_status=$?
+
+peak_mb=$(( peak_kb / 1024 ))
+if [ "$peak_kb" -eq 0 ]; then
+    echo "FAIL no RSS sample after ${WARMUP_SECONDS}s of warmup, the load run was too short"
+    failed=1
+elif [ "$peak_mb" -le "$RSS_BUDGET_MB" ]; then
+    echo "ok   steady-state RSS ${peak_mb}MB (budget ${RSS_BUDGET_MB}MB)"
+else
+    echo "FAIL steady-state RSS ${peak_mb}MB (budget ${RSS_BUDGET_MB}MB)"
+    failed=1
+fi
+if [ "$harness_status" -ne 0 ]; then
+    echo "FAIL load harness exited with $harness_status, see budget-check-load.log"
+    failed=1
+fi
+
+exit "$failed"
@@ -0,0 +1,38 @@
+package br.com.ggcrispim.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Keeps every sample so percentiles are exact; a run of a few hundred thousand
+ * requests is only a few megabytes of longs.
+ */
+final class LatencyRecorder {
+
+    private long[] samples = new long[1 << 16];
+    private int size;
+
+    synchronized void record(long nanos) {
+        if (size == samples.length) {
+            samples = Arrays.copyOf(samples, size * 2);
+        }
+        samples[size++] = nanos;
+    }
+
+    synchronized int count() {
+        return size;
+    }
+
+    /**
+     * @param percentile in {@code [0, 100]}
+     * @return the latency in milliseconds, or 0 with no samples
+     */
+    synchronized double percentileMillis(double percentile) {
+        if (size == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100 * size) - 1;
+        return sorted[Math.max(0, Math.min(rank, size - 1))] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,111 @@
+package br.com.ggcrispim.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Open-loop load on {@code POST /payments}: requests are fired on a fixed schedule
+ * whether or not earlier ones have answered, so a slow app shows up as latency instead
+ * of as a lower request rate.
+ */
+final class LoadDriver {
+
+    private static final String AMOUNT = "19.90";
+
+    private final URI paymentsUri;
+    private final HttpClient client;
+    private final LatencyRecorder latencies = new LatencyRecorder();
+    private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+    private final LongAdder failures = new LongAdder();
+    private final AtomicLong inFlight = new AtomicLong();
+
+    LoadDriver(URI appUri) {
+        this.paymentsUri = appUri.resolve("/payments");
+        this.client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(2))
+                .build();
+    }
+
+    /**
+     * Sends {@code rate} requests per second for {@code duration}, then waits for the
+     * ones still in flight.
+     */
+    void run(int rate, Duration duration) throws InterruptedException {
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+        long startNanos = System.nanoTime();
+        long endNanos = startNanos + duration.toNanos();
+        AtomicLong sent = new AtomicLong();
+        ticker.scheduleAtFixedRate(() -> {
+            long now = System.nanoTime();
+            long due = Math.min(now, endNanos) - startNanos;
+            long target = due * rate / 1_000_000_000L;
+            while (sent.get() < target) {
+                sent.incrementAndGet();
+                send();
+            }
+        }, 0, 1, TimeUnit.MILLISECONDS);
+
+        TimeUnit.NANOSECONDS.sleep(duration.toNanos());
+        ticker.shutdown();
+        ticker.awaitTermination(1, TimeUnit.SECONDS);
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (inFlight.get() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    LatencyRecorder latencies() {
+        return latencies;
+    }
+
+    Map<Integer, LongAdder> statuses() {
+        return statuses;
+    }
+
+    long failures() {
+        return failures.sum();
+    }
+
+    long accepted() {
+        long accepted = 0;
+        for (Map.Entry<Integer, LongAdder> status : statuses.entrySet()) {
+            if (status.getKey() / 100 == 2) {
+                accepted += status.getValue().sum();
+            }
+        }
+        return accepted;
+    }
+
+    private void send() {
+        HttpRequest request = HttpRequest.newBuilder(paymentsUri)
+                .timeout(Duration.ofSeconds(10))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"correlationId\":\"" + UUID.randomUUID() + "\",\"amount\":" + AMOUNT + "}"))
+                .build();
+        long startNanos = System.nanoTime();
+        inFlight.incrementAndGet();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, failure) -> {
+                    latencies.record(System.nanoTime() - startNanos);
+                    if (failure != null) {
+                        failures.increment();
+                    } else {
+                        statuses.computeIfAbsent(response.statusCode(), status -> new LongAdder()).increment();
+                    }
+                    inFlight.decrementAndGet();
+                });
+    }
+}
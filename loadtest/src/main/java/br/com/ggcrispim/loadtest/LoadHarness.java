@@ -0,0 +1,168 @@
+package br.com.ggcrispim.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the two mock processors, drives load at the app and checks that
+ * {@code GET /payments-summary} matches what the mocks were actually paid.
+ *
+ * <p>Options ({@code --name=value}):
+ * <ul>
+ *     <li>{@code app} - app base url, default {@code http://localhost:9999}</li>
+ *     <li>{@code rate} - requests per second, default 500</li>
+ *     <li>{@code duration} - load duration, default 60s</li>
+ *     <li>{@code settle} - wait for the queue to drain before checking, default 10s</li>
+ *     <li>{@code default-port}, {@code fallback-port} - mock ports, default 8001 and 8002</li>
+ *     <li>{@code default-script}, {@code fallback-script} - {@link ProcessorScript}s</li>
+ * </ul>
+ * Exits with 1 when the summary and the mocks disagree.
+ */
+public final class LoadHarness {
+
+    private static final Map<String, String> DEFAULTS = Map.of(
+            "app", "http://localhost:9999",
+            "rate", "500",
+            "duration", "60s",
+            "settle", "10s",
+            "default-port", "8001",
+            "fallback-port", "8002",
+            // A latency spike then an outage of default, while fallback stays up but slower
+            "default-script", "20s:ok:5ms,10s:ok:1200ms,15s:fail,15s:ok:5ms",
+            "fallback-script", "60s:ok:50ms");
+
+    private LoadHarness() {}
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        URI app = URI.create(options.get("app"));
+
+        try (MockPaymentProcessor defaultProcessor = new MockPaymentProcessor("default",
+                     ProcessorScript.parse(options.get("default-script")));
+             MockPaymentProcessor fallbackProcessor = new MockPaymentProcessor("fallback",
+                     ProcessorScript.parse(options.get("fallback-script")))) {
+            defaultProcessor.start(Integer.parseInt(options.get("default-port")));
+            fallbackProcessor.start(Integer.parseInt(options.get("fallback-port")));
+            System.out.println("Mock processors on :" + options.get("default-port") + " and :" + options.get("fallback-port"));
+
+            HttpClient client = HttpClient.newHttpClient();
+            awaitApp(client, app);
+
+            int rate = Integer.parseInt(options.get("rate"));
+            Duration duration = ProcessorScript.parseDuration(options.get("duration"));
+            Instant from = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+            LoadDriver driver = new LoadDriver(app);
+            System.out.println("Sending " + rate + " req/s for " + duration.toSeconds() + "s");
+            long startNanos = System.nanoTime();
+            driver.run(rate, duration);
+            double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+
+            Thread.sleep(ProcessorScript.parseDuration(options.get("settle")).toMillis());
+            Instant to = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+            boolean consistent = report(driver, elapsedSeconds,
+                    fetchSummary(client, app, from, to),
+                    defaultProcessor.totals(from, to), fallbackProcessor.totals(from, to),
+                    defaultProcessor, fallbackProcessor);
+            System.exit(consistent ? 0 : 1);
+        }
+    }
+
+    private static boolean report(LoadDriver driver, double elapsedSeconds, Map<String, long[]> summary,
+                                  MockPaymentProcessor.Totals defaultTotals, MockPaymentProcessor.Totals fallbackTotals,
+                                  MockPaymentProcessor defaultProcessor, MockPaymentProcessor fallbackProcessor) {
+        LatencyRecorder latencies = driver.latencies();
+        System.out.println();
+        System.out.println("== POST /payments ==");
+        System.out.printf("requests   %d in %.1fs (%.0f req/s)%n", latencies.count(), elapsedSeconds, latencies.count() / elapsedSeconds);
+        System.out.printf("latency    p50 %.2fms  p99 %.2fms  p999 %.2fms%n",
+                latencies.percentileMillis(50), latencies.percentileMillis(99), latencies.percentileMillis(99.9));
+        Map<Integer, Long> statuses = new TreeMap<>();
+        driver.statuses().forEach((status, count) -> statuses.put(status, count.sum()));
+        System.out.println("statuses   " + statuses + (driver.failures() > 0 ? "  transport errors " + driver.failures() : ""));
+
+        System.out.println();
+        System.out.println("== Processors ==");
+        System.out.printf("%-9s paid %d (%.2f), rejected %d%n", "default",
+                defaultTotals.count(), defaultTotals.amountCents() / 100.0, defaultProcessor.rejected());
+        System.out.printf("%-9s paid %d (%.2f), rejected %d%n", "fallback",
+                fallbackTotals.count(), fallbackTotals.amountCents() / 100.0, fallbackProcessor.rejected());
+        long paid = defaultTotals.count() + fallbackTotals.count();
+        System.out.printf("unpaid     %d of %d accepted%n", driver.accepted() - paid, driver.accepted());
+
+        System.out.println();
+        System.out.println("== Consistency ==");
+        boolean consistent = check("default", summary.get("default"), defaultTotals)
+                & check("fallback", summary.get("fallback"), fallbackTotals);
+        System.out.println(consistent ? "summary matches the processors" : "SUMMARY DOES NOT MATCH THE PROCESSORS");
+        return consistent;
+    }
+
+    private static boolean check(String processor, long[] reported, MockPaymentProcessor.Totals paid) {
+        boolean matches = reported != null && reported[0] == paid.count() && reported[1] == paid.amountCents();
+        System.out.printf("%-9s summary %s, paid %d/%d cents %s%n", processor,
+                reported == null ? "missing" : reported[0] + "/" + reported[1] + " cents",
+                paid.count(), paid.amountCents(), matches ? "OK" : "MISMATCH");
+        return matches;
+    }
+
+    private static void awaitApp(HttpClient client, URI app) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 60_000;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Instant now = Instant.now();
+                fetchSummary(client, app, now, now);
+                return;
+            } catch (Exception e) {
+                Thread.sleep(500);
+            }
+        }
+        throw new IllegalStateException("App at " + app + " did not answer within 60s");
+    }
+
+    private static final Pattern SUMMARY = Pattern.compile(
+            "\"(default|fallback)\"\\s*:\\s*\\{\\s*\"totalRequests\"\\s*:\\s*(\\d+)\\s*,\\s*\"totalAmount\"\\s*:\\s*([0-9.]+)");
+
+    /**
+     * @return {@code [count, cents]} per processor
+     */
+    private static Map<String, long[]> fetchSummary(HttpClient client, URI app, Instant from, Instant to) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(app.resolve("/payments-summary?from=" + from + "&to=" + to))
+                .timeout(Duration.ofSeconds(5))
+                .GET()
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("GET /payments-summary answered " + response.statusCode());
+        }
+        Map<String, long[]> summary = new HashMap<>();
+        Matcher matcher = SUMMARY.matcher(response.body());
+        while (matcher.find()) {
+            summary.put(matcher.group(1), new long[] {
+                    Long.parseLong(matcher.group(2)), Math.round(Double.parseDouble(matcher.group(3)) * 100)});
+        }
+        return summary;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Unexpected argument '" + arg + "', expected --name=value");
+            }
+            int separator = arg.indexOf('=');
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+}
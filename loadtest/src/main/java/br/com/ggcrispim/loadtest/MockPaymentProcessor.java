@@ -0,0 +1,166 @@
+package br.com.ggcrispim.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stand-in for a payment processor: {@code POST /payments} and
+ * {@code GET /payments/service-health}, following a {@link ProcessorScript}. Like the
+ * real one it rejects a repeated correlation id with 422 and allows one health check
+ * every 5 seconds (429 otherwise). Every accepted payment is recorded so the app's
+ * summary can be checked against what was actually paid.
+ */
+final class MockPaymentProcessor implements AutoCloseable {
+
+    private static final long HEALTH_CHECK_INTERVAL_MILLIS = 5_000;
+    private static final Pattern CORRELATION_ID = Pattern.compile("\"correlationId\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern AMOUNT = Pattern.compile("\"amount\"\\s*:\\s*([0-9.eE+-]+)");
+    private static final Pattern REQUESTED_AT = Pattern.compile("\"requestedAt\"\\s*:\\s*\"([^\"]+)\"");
+
+    record Payment(long amountCents, Instant requestedAt) {}
+
+    record Totals(long count, long amountCents) {}
+
+    private final String name;
+    private final ProcessorScript script;
+    private final Map<String, Payment> payments = new ConcurrentHashMap<>();
+    private final AtomicLong lastHealthCheck = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private HttpServer server;
+    private long startMillis;
+
+    MockPaymentProcessor(String name, ProcessorScript script) {
+        this.name = name;
+        this.script = script;
+    }
+
+    void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 4096);
+        server.setExecutor(executor);
+        server.createContext("/payments", this::handle);
+        startMillis = System.currentTimeMillis();
+        server.start();
+    }
+
+    String name() {
+        return name;
+    }
+
+    long rejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Payments accepted with {@code requestedAt} in {@code [from, to]}.
+     */
+    Totals totals(Instant from, Instant to) {
+        long count = 0;
+        long cents = 0;
+        for (Payment payment : payments.values()) {
+            if (!payment.requestedAt().isBefore(from) && !payment.requestedAt().isAfter(to)) {
+                count++;
+                cents += payment.amountCents();
+            }
+        }
+        return new Totals(count, cents);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            ProcessorScript.Phase phase = script.at(System.currentTimeMillis() - startMillis);
+            String path = exchange.getRequestURI().getPath();
+            if ("GET".equals(exchange.getRequestMethod()) && path.equals("/payments/service-health")) {
+                serviceHealth(exchange, phase);
+            } else if ("POST".equals(exchange.getRequestMethod()) && path.equals("/payments")) {
+                pay(exchange, phase);
+            } else {
+                respond(exchange, 404, "");
+            }
+        }
+    }
+
+    private void serviceHealth(HttpExchange exchange, ProcessorScript.Phase phase) throws IOException {
+        long now = System.currentTimeMillis();
+        long last = lastHealthCheck.get();
+        if (now - last < HEALTH_CHECK_INTERVAL_MILLIS || !lastHealthCheck.compareAndSet(last, now)) {
+            respond(exchange, 429, "");
+            return;
+        }
+        respond(exchange, 200, "{\"failing\":" + phase.failing() + ",\"minResponseTime\":" + phase.latencyMillis() + "}");
+    }
+
+    private void pay(HttpExchange exchange, ProcessorScript.Phase phase) throws IOException {
+        String body = read(exchange.getRequestBody());
+        sleep(phase.latencyMillis());
+        if (phase.failing()) {
+            rejected.incrementAndGet();
+            respond(exchange, 500, "");
+            return;
+        }
+        String correlationId = find(CORRELATION_ID, body);
+        String amount = find(AMOUNT, body);
+        String requestedAt = find(REQUESTED_AT, body);
+        if (correlationId == null || amount == null || requestedAt == null) {
+            respond(exchange, 400, "");
+            return;
+        }
+        Payment payment = new Payment(Math.round(Double.parseDouble(amount) * 100), Instant.parse(requestedAt));
+        if (payments.putIfAbsent(correlationId, payment) != null) {
+            respond(exchange, 422, "");
+            return;
+        }
+        respond(exchange, 200, "{\"message\":\"payment processed successfully\"}");
+    }
+
+    private static String find(Pattern pattern, String body) {
+        Matcher matcher = pattern.matcher(body);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private static String read(InputStream body) throws IOException {
+        return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package br.com.ggcrispim.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Timeline a mock processor plays back, e.g. {@code 20s:ok:5ms,10s:fail,30s:ok:900ms}:
+ * each phase is a duration, {@code ok} or {@code fail}, and an optional response
+ * latency. The last phase lasts until the run ends.
+ */
+record ProcessorScript(List<Phase> phases) {
+
+    record Phase(long durationMillis, boolean failing, long latencyMillis) {}
+
+    static ProcessorScript parse(String script) {
+        List<Phase> phases = new ArrayList<>();
+        for (String phase : script.split(",")) {
+            String[] parts = phase.trim().split(":");
+            if (parts.length < 2) {
+                throw new IllegalArgumentException("Invalid phase '" + phase + "', expected <duration>:<ok|fail>[:<latency>]");
+            }
+            long latency = parts.length > 2 ? parseDuration(parts[2]).toMillis() : 0;
+            phases.add(new Phase(parseDuration(parts[0]).toMillis(), "fail".equals(parts[1]), latency));
+        }
+        return new ProcessorScript(List.copyOf(phases));
+    }
+
+    Phase at(long elapsedMillis) {
+        long phaseEnd = 0;
+        for (Phase phase : phases) {
+            phaseEnd += phase.durationMillis();
+            if (elapsedMillis < phaseEnd) {
+                return phase;
+            }
+        }
+        return phases.get(phases.size() - 1);
+    }
+
+    // 500ms, 10s, 2m
+    static Duration parseDuration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        return switch (value.charAt(value.length() - 1)) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            default -> throw new IllegalArgumentException("Invalid duration '" + value + "'");
+        };
+    }
+}
@@ -1,13 +1,80 @@
 DROP TABLE IF EXISTS payment_summary;
+DROP TABLE IF EXISTS payment_summary_staging;
+DROP TABLE IF EXISTS payment_ids;
 
+-- Range-partitioned on requested_at; PaymentSummaryPartitionManager creates the time
+-- partitions ahead of use and drops them past retention. A unique constraint on a
+-- partitioned table must include the partition key, which would let a client re-POST
+-- (same correlationId, new requested_at) through, so uniqueness lives in payment_ids.
 CREATE TABLE payment_summary (
-    id SERIAL PRIMARY KEY,
-    correlationId UUID UNIQUE NOT NULL,
+    correlationId UUID NOT NULL,
     amount DECIMAL NOT NULL,
     requested_at TIMESTAMP NOT NULL,
     payment_strategy INTEGER NOT NULL
+) PARTITION BY RANGE (requested_at);
+
+-- One row per persisted payment, unpartitioned so its key is the correlation id alone.
+-- Every insert into payment_summary goes through it in the same statement; requested_at
+-- lets a dropped partition take its ids along
+CREATE TABLE payment_ids (
+    correlationId UUID PRIMARY KEY,
+    requested_at TIMESTAMP NOT NULL
 );
+CREATE INDEX payment_ids_requested_at ON payment_ids USING brin (requested_at);
+
+-- Catch-all for rows outside every managed partition; never dropped
+CREATE TABLE payment_summary_default PARTITION OF payment_summary DEFAULT;
+
+-- Creates partition [range_from, range_to) unless it exists. A partition cannot be added
+-- while the default holds rows of its range, so those are moved over: the default is
+-- detached, the partition created and filled from it, and the default attached again,
+-- all in the caller's transaction. The advisory lock serializes instances racing here.
+CREATE OR REPLACE FUNCTION create_payment_summary_partition(partition_name TEXT, range_from TIMESTAMP, range_to TIMESTAMP)
+RETURNS BOOLEAN LANGUAGE plpgsql AS $$
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('payment_summary_partitions'));
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+    IF EXISTS (SELECT 1 FROM payment_summary_default WHERE requested_at >= range_from AND requested_at < range_to) THEN
+        ALTER TABLE payment_summary DETACH PARTITION payment_summary_default;
+        EXECUTE format('CREATE TABLE %I PARTITION OF payment_summary FOR VALUES FROM (%L) TO (%L)', partition_name, range_from, range_to);
+        EXECUTE format('INSERT INTO %I SELECT * FROM payment_summary_default WHERE requested_at >= %L AND requested_at < %L',
+                partition_name, range_from, range_to);
+        DELETE FROM payment_summary_default WHERE requested_at >= range_from AND requested_at < range_to;
+        ALTER TABLE payment_summary ATTACH PARTITION payment_summary_default DEFAULT;
+    ELSE
+        EXECUTE format('CREATE TABLE %I PARTITION OF payment_summary FOR VALUES FROM (%L) TO (%L)', partition_name, range_from, range_to);
+    END IF;
+    RETURN TRUE;
+END;
+$$;
+
+-- The first partitions exist before any instance starts, so early inserts never race the
+-- manager into the default partition. Matches the default 1h interval and naming of
+-- PaymentSummaryPartitionManager: the previous hour, the current one and 3 ahead (UTC)
+DO $$
+DECLARE
+    first_hour TIMESTAMP := date_trunc('hour', now() AT TIME ZONE 'UTC') - INTERVAL '1 hour';
+    range_from TIMESTAMP;
+BEGIN
+    FOR i IN 0..4 LOOP
+        range_from := first_hour + i * INTERVAL '1 hour';
+        PERFORM create_payment_summary_partition('payment_summary_p' || to_char(range_from, 'YYYYMMDD_HH24MI'),
+                range_from, range_from + INTERVAL '1 hour');
+    END LOOP;
+END;
+$$;
 
-CREATE INDEX payments_requested_at ON payment_summary (requested_at);
-CREATE INDEX correlation_id_at ON payment_summary (correlationId);
+-- Rows arrive in requested_at order, so a BRIN index is a few pages per partition and
+-- lets range summaries skip blocks without maintaining a B-tree on every insert
+CREATE INDEX payments_requested_at ON payment_summary USING brin (requested_at);
 
+-- payment.persist.mode=staging: consumers append here and ack once the append commits,
+-- so it stays a logged table; no keys or indexes, the merger dedupes through payment_ids
+CREATE TABLE payment_summary_staging (
+    correlationId UUID NOT NULL,
+    amount DECIMAL NOT NULL,
+    requested_at TIMESTAMP NOT NULL,
+    payment_strategy INTEGER NOT NULL
+);
@@ -0,0 +1,92 @@
+package br.com.ggcrispim.batch;
+
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.UniEmitter;
+import io.vertx.mutiny.core.Vertx;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Groups concurrent submissions into batches. A batch is handed to the {@link Flusher}
+ * when it reaches {@code batchSize} or when its first item has waited {@code linger},
+ * whichever comes first. Each submitter's {@link Uni} completes with whatever the flusher
+ * emits for its item.
+ *
+ * @param <T> the submitted item
+ * @param <R> what each submitter gets back
+ */
+public final class Coalescer<T, R> {
+
+    @FunctionalInterface
+    public interface Flusher<T, R> {
+
+        /**
+         * Writes one batch; {@code emitters.get(i)} belongs to {@code items.get(i)} and
+         * every emitter must eventually be completed or failed.
+         */
+        void flush(List<T> items, List<UniEmitter<? super R>> emitters);
+    }
+
+    private final Vertx vertx;
+    private final int batchSize;
+    private final long lingerMillis;
+    private final Flusher<T, R> flusher;
+
+    private final Object lock = new Object();
+    private List<T> pendingItems;
+    private List<UniEmitter<? super R>> pendingEmitters;
+    private boolean flushScheduled;
+
+    public Coalescer(Vertx vertx, int batchSize, Duration linger, Flusher<T, R> flusher) {
+        this.vertx = vertx;
+        this.batchSize = Math.max(1, batchSize);
+        this.lingerMillis = Math.max(1, linger.toMillis());
+        this.flusher = flusher;
+        this.pendingItems = new ArrayList<>(this.batchSize);
+        this.pendingEmitters = new ArrayList<>(this.batchSize);
+    }
+
+    public Uni<R> submit(T item) {
+        return Uni.createFrom().emitter(emitter -> enqueue(item, emitter));
+    }
+
+    private void enqueue(T item, UniEmitter<? super R> emitter) {
+        boolean flushNow = false;
+        synchronized (lock) {
+            pendingItems.add(item);
+            pendingEmitters.add(emitter);
+            if (pendingItems.size() >= batchSize) {
+                flushNow = true;
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                vertx.setTimer(lingerMillis, id -> flush());
+            }
+        }
+        if (flushNow) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        List<T> items;
+        List<UniEmitter<? super R>> emitters;
+        synchronized (lock) {
+            flushScheduled = false;
+            if (pendingItems.isEmpty()) {
+                return;
+            }
+            items = pendingItems;
+            emitters = pendingEmitters;
+            pendingItems = new ArrayList<>(batchSize);
+            pendingEmitters = new ArrayList<>(batchSize);
+        }
+        try {
+            flusher.flush(items, emitters);
+        } catch (RuntimeException e) {
+            // A flusher that throws before subscribing would otherwise leave the whole batch hanging
+            emitters.forEach(emitter -> emitter.fail(e));
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package br.com.ggcrispim.codec;
+
+import br.com.ggcrispim.dto.PaymentProcessorState;
+import br.com.ggcrispim.dto.PaymentRequest;
+import br.com.ggcrispim.dto.PaymentSummary;
+import br.com.ggcrispim.dto.Summary;
+import io.vertx.core.buffer.Buffer;
+import jakarta.ws.rs.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Hand-written JSON for the few shapes on the payment hot path. Reads scan the body's
+ * bytes once, in place, matching only the keys each type needs and skipping the rest;
+ * writes append straight into a {@link Buffer}. No reflection, no intermediate maps.
+ *
+ * <p>Malformed input fails with {@link BadRequestException}, so a bad request body is
+ * answered with 400 rather than 500.
+ */
+public final class PaymentJsonCodec {
+
+    private PaymentJsonCodec() {}
+
+    /**
+     * @throws BadRequestException unless the body is a JSON object with a canonical UUID
+     *                             {@code correlationId} and a positive {@code amount}
+     */
+    public static PaymentRequest decodePaymentRequest(byte[] json) {
+        Scanner scanner = new Scanner(json);
+        String correlationId = null;
+        double amount = 0;
+        LocalDateTime requestedAt = null;
+        while (scanner.nextField()) {
+            if (scanner.fieldIs("correlationId")) {
+                correlationId = scanner.readString();
+            } else if (scanner.fieldIs("amount")) {
+                amount = scanner.readDouble();
+            } else if (scanner.fieldIs("requestedAt")) {
+                requestedAt = scanner.readInstant();
+            } else {
+                scanner.skipValue();
+            }
+        }
+        if (!isUuid(correlationId)) {
+            throw new BadRequestException("correlationId must be a UUID");
+        }
+        if (!(amount > 0) || Double.isInfinite(amount)) {
+            throw new BadRequestException("amount must be a positive number");
+        }
+        return new PaymentRequest(correlationId, amount, requestedAt);
+    }
+
+    public static PaymentProcessorState decodeProcessorState(byte[] json) {
+        Scanner scanner = new Scanner(json);
+        PaymentProcessorState state = new PaymentProcessorState();
+        while (scanner.nextField()) {
+            if (scanner.fieldIs("failing")) {
+                state.setFailing(scanner.readBoolean());
+            } else if (scanner.fieldIs("minResponseTime")) {
+                state.setMinResponseTime((int) scanner.readDouble());
+            } else {
+                scanner.skipValue();
+            }
+        }
+        return state;
+    }
+
+    /**
+     * The body sent to the payment processors.
+     */
+    public static Buffer encodePaymentRequest(PaymentRequest paymentRequest) {
+        Buffer json = Buffer.buffer(128)
+                .appendString("{\"correlationId\":\"").appendString(paymentRequest.getCorrelationId())
+                .appendString("\",\"amount\":");
+        appendCents(json, Math.round(paymentRequest.getAmount() * 100));
+        if (paymentRequest.getRequestedAt() != null) {
+            json.appendString(",\"requestedAt\":\"");
+            appendInstant(json, paymentRequest.getRequestedAt());
+            json.appendByte((byte) '"');
+        }
+        return json.appendByte((byte) '}');
+    }
+
+    public static Buffer encodePaymentSummary(PaymentSummary paymentSummary) {
+        Buffer json = Buffer.buffer(128).appendString("{\"default\":");
+        appendSummary(json, paymentSummary.getDefaultPayment());
+        json.appendString(",\"fallback\":");
+        appendSummary(json, paymentSummary.getFallbackPayment());
+        return json.appendByte((byte) '}');
+    }
+
+    private static void appendSummary(Buffer json, Summary summary) {
+        json.appendString("{\"totalRequests\":").appendString(Integer.toString(summary.getTotalRequests()))
+                .appendString(",\"totalAmount\":");
+        appendCents(json, Math.round(summary.getTotalAmount() * 100));
+        json.appendByte((byte) '}');
+    }
+
+    // Money is written from cents so sums never print as 1234.5600000000002
+    private static void appendCents(Buffer json, long cents) {
+        if (cents < 0) {
+            json.appendByte((byte) '-');
+            cents = -cents;
+        }
+        json.appendString(Long.toString(cents / 100)).appendByte((byte) '.');
+        long fraction = cents % 100;
+        json.appendByte((byte) ('0' + fraction / 10)).appendByte((byte) ('0' + fraction % 10));
+    }
+
+    // ISO-8601 UTC with millis, e.g. 2025-07-15T12:34:56.000Z
+    private static void appendInstant(Buffer json, LocalDateTime dateTime) {
+        appendPadded(json, dateTime.getYear(), 4);
+        json.appendByte((byte) '-');
+        appendPadded(json, dateTime.getMonthValue(), 2);
+        json.appendByte((byte) '-');
+        appendPadded(json, dateTime.getDayOfMonth(), 2);
+        json.appendByte((byte) 'T');
+        appendPadded(json, dateTime.getHour(), 2);
+        json.appendByte((byte) ':');
+        appendPadded(json, dateTime.getMinute(), 2);
+        json.appendByte((byte) ':');
+        appendPadded(json, dateTime.getSecond(), 2);
+        json.appendByte((byte) '.');
+        appendPadded(json, dateTime.getNano() / 1_000_000, 3);
+        json.appendByte((byte) 'Z');
+    }
+
+    private static void appendPadded(Buffer json, int value, int width) {
+        for (int divisor = (int) Math.pow(10, width - 1); divisor > 0; divisor /= 10) {
+            json.appendByte((byte) ('0' + (value / divisor) % 10));
+        }
+    }
+
+    // Canonical 8-4-4-4-12 hex form only; UUID.fromString also accepts things like "1-1-1-1-1"
+    static boolean isUuid(String value) {
+        if (value == null || value.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char current = value.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (current != '-') {
+                    return false;
+                }
+            } else if (Character.digit(current, 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Forward-only scanner over a flat JSON object. Nested values of unknown fields are
+     * skipped; strings are expected to be ASCII with simple escapes.
+     */
+    private static final class Scanner {
+
+        private final byte[] json;
+        private final int length;
+        private int position;
+        private int fieldStart;
+        private int fieldEnd;
+
+        Scanner(byte[] json) {
+            this.json = json;
+            this.length = json.length;
+            skipWhitespace();
+            expect('{');
+        }
+
+        boolean nextField() {
+            skipWhitespace();
+            if (position < length && json[position] == ',') {
+                position++;
+                skipWhitespace();
+            }
+            if (position >= length || json[position] == '}') {
+                return false;
+            }
+            expect('"');
+            fieldStart = position;
+            while (position < length && json[position] != '"') {
+                position++;
+            }
+            fieldEnd = position;
+            expect('"');
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            return true;
+        }
+
+        boolean fieldIs(String name) {
+            if (fieldEnd - fieldStart != name.length()) {
+                return false;
+            }
+            for (int i = 0; i < name.length(); i++) {
+                if (json[fieldStart + i] != name.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        String readString() {
+            if (skipNull()) {
+                return null;
+            }
+            expect('"');
+            StringBuilder value = new StringBuilder(40);
+            while (position < length) {
+                byte current = json[position++];
+                if (current == '"') {
+                    return value.toString();
+                }
+                if (current == '\\' && position < length) {
+                    current = json[position++];
+                }
+                value.append((char) current);
+            }
+            throw invalid("unterminated string");
+        }
+
+        double readDouble() {
+            int start = position;
+            while (position < length && isNumberChar(json[position])) {
+                position++;
+            }
+            if (start == position) {
+                throw invalid("number expected");
+            }
+            try {
+                return Double.parseDouble(new String(json, start, position - start, StandardCharsets.US_ASCII));
+            } catch (NumberFormatException e) {
+                throw invalid("malformed number");
+            }
+        }
+
+        LocalDateTime readInstant() {
+            String value = readString();
+            if (value == null) {
+                return null;
+            }
+            try {
+                return LocalDateTime.ofInstant(Instant.parse(value), ZoneOffset.UTC);
+            } catch (DateTimeParseException e) {
+                throw invalid("ISO-8601 instant expected");
+            }
+        }
+
+        boolean readBoolean() {
+            if (matches("true")) {
+                return true;
+            }
+            if (matches("false")) {
+                return false;
+            }
+            throw invalid("boolean expected");
+        }
+
+        void skipValue() {
+            byte current = position < length ? json[position] : 0;
+            if (current == '"') {
+                readString();
+            } else if (current == '{' || current == '[') {
+                int depth = 0;
+                boolean inString = false;
+                do {
+                    byte next = json[position++];
+                    if (inString) {
+                        if (next == '\\') {
+                            position++;
+                        } else if (next == '"') {
+                            inString = false;
+                        }
+                    } else if (next == '"') {
+                        inString = true;
+                    } else if (next == '{' || next == '[') {
+                        depth++;
+                    } else if (next == '}' || next == ']') {
+                        depth--;
+                    }
+                } while (depth > 0 && position < length);
+            } else {
+                while (position < length && json[position] != ',' && json[position] != '}') {
+                    position++;
+                }
+            }
+        }
+
+        private boolean skipNull() {
+            return matches("null");
+        }
+
+        private boolean matches(String literal) {
+            if (position + literal.length() > length) {
+                return false;
+            }
+            for (int i = 0; i < literal.length(); i++) {
+                if (json[position + i] != literal.charAt(i)) {
+                    return false;
+                }
+            }
+            position += literal.length();
+            return true;
+        }
+
+        private void skipWhitespace() {
+            while (position < length) {
+                byte current = json[position];
+                if (current != ' ' && current != '\n' && current != '\r' && current != '\t') {
+                    return;
+                }
+                position++;
+            }
+        }
+
+        private void expect(char expected) {
+            if (position >= length || json[position] != expected) {
+                throw invalid("'" + expected + "' expected");
+            }
+            position++;
+        }
+
+        private static boolean isNumberChar(byte current) {
+            return (current >= '0' && current <= '9') || current == '-' || current == '+'
+                    || current == '.' || current == 'e' || current == 'E';
+        }
+
+        private BadRequestException invalid(String reason) {
+            return new BadRequestException("Invalid JSON at position " + position + ": " + reason);
+        }
+    }
+}
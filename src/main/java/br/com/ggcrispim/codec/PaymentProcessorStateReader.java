@@ -0,0 +1,29 @@
+package br.com.ggcrispim.codec;
+
+import br.com.ggcrispim.dto.PaymentProcessorState;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.MessageBodyReader;
+import jakarta.ws.rs.ext.Provider;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+@Provider
+@Consumes(MediaType.APPLICATION_JSON)
+public class PaymentProcessorStateReader implements MessageBodyReader<PaymentProcessorState> {
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return type == PaymentProcessorState.class;
+    }
+
+    @Override
+    public PaymentProcessorState readFrom(Class<PaymentProcessorState> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+            MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException {
+        return PaymentJsonCodec.decodeProcessorState(entityStream.readAllBytes());
+    }
+}
@@ -0,0 +1,29 @@
+package br.com.ggcrispim.codec;
+
+import br.com.ggcrispim.dto.PaymentRequest;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.MessageBodyReader;
+import jakarta.ws.rs.ext.Provider;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+@Provider
+@Consumes(MediaType.APPLICATION_JSON)
+public class PaymentRequestReader implements MessageBodyReader<PaymentRequest> {
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return type == PaymentRequest.class;
+    }
+
+    @Override
+    public PaymentRequest readFrom(Class<PaymentRequest> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+            MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException {
+        return PaymentJsonCodec.decodePaymentRequest(entityStream.readAllBytes());
+    }
+}
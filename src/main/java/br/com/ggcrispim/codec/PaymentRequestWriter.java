@@ -0,0 +1,29 @@
+package br.com.ggcrispim.codec;
+
+import br.com.ggcrispim.dto.PaymentRequest;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.MessageBodyWriter;
+import jakarta.ws.rs.ext.Provider;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+@Provider
+@Produces(MediaType.APPLICATION_JSON)
+public class PaymentRequestWriter implements MessageBodyWriter<PaymentRequest> {
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return type == PaymentRequest.class;
+    }
+
+    @Override
+    public void writeTo(PaymentRequest value, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+            MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+        entityStream.write(PaymentJsonCodec.encodePaymentRequest(value).getBytes());
+    }
+}
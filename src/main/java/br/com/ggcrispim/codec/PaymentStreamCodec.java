@@ -0,0 +1,53 @@
+package br.com.ggcrispim.codec;
+
+import br.com.ggcrispim.dto.PaymentRequest;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+/**
+ * Fixed 32-byte binary layout for a payment on the stream: the correlation id as two
+ * longs, the amount in cents and {@code requestedAt} as epoch millis (UTC). It replaces
+ * the separate fields plus JSON payload, which cost several times the memory in a
+ * Redis capped at 48mb and a JSON round trip per message.
+ */
+public final class PaymentStreamCodec {
+
+    public static final String FIELD = "p";
+    public static final int SIZE = 32;
+
+    private PaymentStreamCodec() {}
+
+    public static byte[] encode(PaymentRequest paymentRequest) {
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+        encode(paymentRequest, buffer);
+        return buffer.array();
+    }
+
+    public static void encode(PaymentRequest paymentRequest, ByteBuffer buffer) {
+        UUID correlationId = UUID.fromString(paymentRequest.getCorrelationId());
+        LocalDateTime requestedAt = paymentRequest.getRequestedAt();
+        buffer.putLong(correlationId.getMostSignificantBits())
+                .putLong(correlationId.getLeastSignificantBits())
+                .putLong(Math.round(paymentRequest.getAmount() * 100))
+                .putLong(requestedAt.toEpochSecond(ZoneOffset.UTC) * 1000 + requestedAt.getNano() / 1_000_000);
+    }
+
+    public static PaymentRequest decode(byte[] bytes) {
+        if (bytes == null || bytes.length < SIZE) {
+            throw new IllegalArgumentException("Invalid payment entry of " + (bytes == null ? 0 : bytes.length) + " bytes");
+        }
+        return decode(ByteBuffer.wrap(bytes));
+    }
+
+    public static PaymentRequest decode(ByteBuffer buffer) {
+        UUID correlationId = new UUID(buffer.getLong(), buffer.getLong());
+        long cents = buffer.getLong();
+        long epochMillis = buffer.getLong();
+        LocalDateTime requestedAt = LocalDateTime.ofEpochSecond(
+                Math.floorDiv(epochMillis, 1000), (int) Math.floorMod(epochMillis, 1000) * 1_000_000, ZoneOffset.UTC);
+        return new PaymentRequest(correlationId.toString(), cents / 100.0, requestedAt);
+    }
+}
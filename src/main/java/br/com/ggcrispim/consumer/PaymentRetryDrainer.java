@@ -0,0 +1,81 @@
+package br.com.ggcrispim.consumer;
+
+import br.com.ggcrispim.service.PaymentRetryQueue;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.core.Vertx;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Re-injects payments from {@link PaymentRetryQueue} into the processing pipeline
+ * once their next attempt is due, and removes each entry only after its attempt is
+ * persisted or rescheduled. Runs on a Vert.x timer because the scheduler's
+ * one-second resolution is coarser than the retry backoff.
+ */
+@ApplicationScoped
+public class PaymentRetryDrainer {
+
+    private static final Logger LOG = Logger.getLogger(PaymentRetryDrainer.class);
+
+    @ConfigProperty(name = "payment.retry.drain-interval", defaultValue = "50ms")
+    Duration drainInterval;
+
+    @ConfigProperty(name = "payment.retry.drain-batch-size", defaultValue = "50")
+    int drainBatchSize;
+
+    @Inject
+    Vertx vertx;
+
+    @Inject
+    PaymentRetryQueue paymentRetryQueue;
+
+    @Inject
+    PaymentStreamConsumer paymentStreamConsumer;
+
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private long timerId = -1;
+
+    void onStart(@Observes StartupEvent event) {
+        timerId = vertx.setPeriodic(drainInterval.toMillis(), id -> drain());
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (timerId != -1) {
+            vertx.cancelTimer(timerId);
+        }
+    }
+
+    private void drain() {
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+        paymentRetryQueue.pollDue(drainBatchSize)
+                .onItem().transformToUni(entries -> Multi.createFrom().iterable(entries)
+                        .onItem().transformToUniAndMerge(this::retry)
+                        .collect().last())
+                .onFailure().invoke(failure -> LOG.error("Failed to drain retry queue", failure))
+                .onFailure().recoverWithNull()
+                .onTermination().invoke(() -> draining.set(false))
+                .subscribe().with(ignored -> {});
+    }
+
+    // An entry that could not be handled keeps its lease and comes due again after the visibility timeout
+    private Uni<Void> retry(PaymentRetryQueue.RetryEntry entry) {
+        return paymentStreamConsumer.retryPaymentAndPersist(entry)
+                .onItem().transformToUni(handled -> handled
+                        ? paymentRetryQueue.complete(entry)
+                        : Uni.createFrom().voidItem())
+                .onFailure().invoke(failure ->
+                        LOG.error("Failed to complete retry of payment " + entry.paymentRequest().getCorrelationId(), failure))
+                .onFailure().recoverWithNull();
+    }
+}
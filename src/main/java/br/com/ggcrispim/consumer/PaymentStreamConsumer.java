@@ -1,19 +1,28 @@
 package br.com.ggcrispim.consumer;
 
 import br.com.ggcrispim.dto.PaymentRequest;
-import br.com.ggcrispim.mapper.PaymentSummaryModelMapper;
-import br.com.ggcrispim.model.PaymentSummaryModel;
+import br.com.ggcrispim.model.PaymentSummaryBatchWriter;
+import br.com.ggcrispim.queue.PaymentQueue;
+import br.com.ggcrispim.queue.QueuedPayment;
+import br.com.ggcrispim.service.PaymentAggregateIndex;
+import br.com.ggcrispim.service.PaymentIdempotencyFilter;
+import br.com.ggcrispim.service.PaymentRetryQueue;
+import br.com.ggcrispim.service.PaymentService;
 import br.com.ggcrispim.service.RedisQueueService;
-import io.quarkus.redis.datasource.ReactiveRedisDataSource;
-import io.quarkus.redis.datasource.stream.StreamMessage;
-import io.quarkus.redis.datasource.stream.XGroupCreateArgs;
-import io.quarkus.redis.datasource.stream.XReadGroupArgs;
-import io.quarkus.scheduler.Scheduled;
+import br.com.ggcrispim.trace.PaymentTrace;
+import br.com.ggcrispim.trace.PaymentTracer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
 import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
-import io.vertx.core.json.JsonObject;
-import io.vertx.mutiny.sqlclient.Pool;
+import io.smallrye.mutiny.subscription.Cancellable;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.mutiny.core.Vertx;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
 import jakarta.inject.Inject;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
@@ -21,211 +30,281 @@ import org.jboss.logging.Logger;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @ApplicationScoped
 public class PaymentStreamConsumer {
 
     private static final Logger LOG = Logger.getLogger(PaymentStreamConsumer.class);
-    private static final String PAYMENT_STREAM = "payments:stream";
-    private static final String CONSUMER_GROUP = "payment-processors";
     @ConfigProperty(name = "payment.stream.batch-size", defaultValue = "30")
     private int BATCH_SIZE;
-    private static final String[] CONSUMER_NAMES = {"processor-1", "processor-2", "processor-3", "processor-4", "processor-5",
-                                                    "processor-6", "processor-7", "processor-8", "processor-9", "processor-10"};
+    @ConfigProperty(name = "payment.stream.consumer-lanes", defaultValue = "4")
+    int consumerLanes;
+    @ConfigProperty(name = "payment.instance-id")
+    String instanceId;
+    @ConfigProperty(name = "payment.persist.retries", defaultValue = "5")
+    int persistRetries;
 
     private final AtomicInteger activeProcessingCount = new AtomicInteger(0);
 
     @Inject
-    ReactiveRedisDataSource reactiveRedisClient;
+    PaymentQueue paymentQueue;
 
     @Inject
-    PaymentSummaryModelMapper paymentSummaryModelMapper;
+    RedisQueueService redisQueueService;
 
     @Inject
-    RedisQueueService redisQueueService;
+    PaymentRetryQueue paymentRetryQueue;
 
     @Inject
-    Pool client;
+    PaymentSummaryBatchWriter paymentSummaryBatchWriter;
 
-    @Scheduled(every = "1s")
-    public Uni<Void> consumePaymentStream() {
-        return Multi.createFrom().items(CONSUMER_NAMES)
-                .onItem().transformToUniAndConcatenate(this::consumeWithConsumerName)
-                .collect().asList()
-                .onFailure().invoke(failure ->
-                        LOG.error("Failed to consume from payment stream", failure))
-                .onFailure().recoverWithItem(List.of())
-                .replaceWithVoid();
-    }
+    @Inject
+    PaymentAggregateIndex paymentAggregateIndex;
 
-    private Uni<Void> consumeWithConsumerName(String consumerName) {
-        return ensureStreamAndGroupExist()
-                .onItem().transformToUni(ignored -> readFromStream(consumerName));
-    }
+    @Inject
+    PaymentIdempotencyFilter paymentIdempotencyFilter;
 
-    private Uni<Void> ensureStreamAndGroupExist() {
-        return reactiveRedisClient.stream(String.class)
-                .xgroupCreate(PAYMENT_STREAM, CONSUMER_GROUP, "0", new XGroupCreateArgs().mkstream())
-                .onFailure().recoverWithUni(ignored -> Uni.createFrom().voidItem())
-                .replaceWithVoid();
-    }
+    @Inject
+    PaymentTracer paymentTracer;
 
-    private Uni<Void> readFromStream(String consumerName) {
-        XReadGroupArgs args = new XReadGroupArgs()
-                .count(BATCH_SIZE)
-                .block(Duration.ofMillis(10));
+    @Inject
+    Vertx vertx;
 
-        return reactiveRedisClient.stream(String.class)
-                .xreadgroup(CONSUMER_GROUP, consumerName, PAYMENT_STREAM, ">", args)
-                .onItem().transformToUni(this::processStreamMessagesReactively)
-                .onFailure().invoke(failure -> {
-                    if (!failure.getMessage().contains("NOGROUP")) {
-                        LOG.error("Error reading from stream with consumer: " + consumerName, failure);
-                    }
-                })
-                .onFailure().recoverWithUni(ignored -> Uni.createFrom().voidItem());
+    @Inject
+    MeterRegistry registry;
+
+    private final List<Cancellable> consumerLoops = new CopyOnWriteArrayList<>();
+
+    @PostConstruct
+    void registerMetrics() {
+        registry.gauge("payments.consumer.inflight", activeProcessingCount);
     }
 
-    private Uni<Void> processStreamMessagesReactively(List<StreamMessage<String, String, String>> messages) {
-        return filterAndLogMessages(messages)
-                .onItem().transformToUni(this::processValidMessages);
+    /**
+     * Deploys one verticle per lane. Vert.x gives each verticle instance its own event
+     * loop, and every Redis, HTTP and PG callback issued from a lane comes back on that
+     * loop, so lanes spread the consume path across cores without sharing a thread.
+     */
+    void onStart(@Observes StartupEvent event) {
+        AtomicInteger nextLane = new AtomicInteger(1);
+        paymentQueue.start()
+                .onItem().transformToUni(ignored -> vertx.deployVerticle(
+                        () -> new ConsumerLane(consumerName(nextLane.getAndIncrement())),
+                        new DeploymentOptions().setInstances(consumerLanes)))
+                .subscribe().with(
+                        deploymentId -> LOG.info("Started " + consumerLanes + " payment stream consumer lanes"),
+                        failure -> LOG.error("Failed to start payment stream consumers", failure));
     }
 
-    private Uni<List<StreamMessage<String, String, String>>> filterAndLogMessages(
-            List<StreamMessage<String, String, String>> messages) {
+    void onStop(@Observes ShutdownEvent event) {
+        consumerLoops.forEach(Cancellable::cancel);
+    }
 
-        if (messages == null || messages.isEmpty()) {
-            return Uni.createFrom().item(List.of());
-        }
+    // Names are unique per instance so pending entries of a dead instance are never shared with a live one
+    private String consumerName(int lane) {
+        return instanceId + "-" + lane;
+    }
+
+    private class ConsumerLane extends AbstractVerticle {
 
-        // Reactive filtering without worker threads
-        List<StreamMessage<String, String, String>> validMessages = new ArrayList<>();
-        List<String> initIds = new ArrayList<>();
+        private final String consumerName;
 
-        for (StreamMessage<String, String, String> message : messages) {
-            if (message.payload().containsKey("init")) {
-                initIds.add(message.id());
-            } else {
-                validMessages.add(message);
-            }
+        ConsumerLane(String consumerName) {
+            this.consumerName = consumerName;
         }
 
-        if (!initIds.isEmpty()) {
-            return acknowledgeMessages(initIds)
-                    .onItem().transform(ignored -> validMessages);
+        @Override
+        public void start() {
+            consumerLoops.add(startConsumerLoop(consumerName));
         }
+    }
+
+    /**
+     * Polls again as soon as the previous batch is processed and acknowledged, so the
+     * only idle time is the queue's blocking wait while it is empty.
+     */
+    private Cancellable startConsumerLoop(String consumerName) {
+        return Multi.createBy().repeating().uni(() -> consume(consumerName))
+                .indefinitely()
+                .onFailure().invoke(failure ->
+                        LOG.error("Error reading from payment queue with consumer: " + consumerName, failure))
+                .onFailure().retry().withBackOff(Duration.ofMillis(100), Duration.ofSeconds(2)).indefinitely()
+                .subscribe().with(ignored -> {});
+    }
 
-        return Uni.createFrom().item(validMessages);
+    private Uni<Integer> consume(String consumerName) {
+        return paymentQueue.poll(consumerName, BATCH_SIZE)
+                .onItem().transformToUni(payments -> processQueuedPayments(payments)
+                        .replaceWith(payments.size()));
     }
 
-    private Uni<Void> processValidMessages(List<StreamMessage<String, String, String>> validMessages) {
-        if (validMessages.isEmpty()) {
+    Uni<Void> processQueuedPayments(List<QueuedPayment> payments) {
+        return processQueuedPayments(payments, true);
+    }
+
+    /**
+     * Reclaimed payments are not claimed again, since the delivery that stalled holds
+     * their claim. Instead its state decides: a payment a processor already took is only
+     * persisted, any other one is dispatched again.
+     */
+    Uni<Void> processReclaimedPayments(List<QueuedPayment> payments) {
+        return processQueuedPayments(payments, false);
+    }
+
+    private Uni<Void> processQueuedPayments(List<QueuedPayment> payments, boolean checkDuplicates) {
+        if (payments.isEmpty()) {
             return Uni.createFrom().voidItem();
         }
 
-        LOG.info("Processing " + validMessages.size() + " messages from stream");
+        LOG.debug("Processing " + payments.size() + " messages from stream");
 
-        // Apply backpressure with controlled concurrency - fully reactive
-        return Multi.createFrom().iterable(validMessages)
-                .onItem().transformToUni(this::processStreamMessageWithBackpressure)
-                .merge(25)
+        List<PaymentTrace> traces = new ArrayList<>(payments.size());
+        for (QueuedPayment payment : payments) {
+            traces.add(paymentTracer.start(payment.paymentRequest(), 0));
+        }
+
+        // Processor calls are gated by the shared AdaptiveConcurrencyLimiter, not by this merge
+        return Multi.createFrom().range(0, payments.size())
+                .onItem().transformToUni(i -> processQueuedPaymentWithBackpressure(payments.get(i), traces.get(i), checkDuplicates))
+                .merge(payments.size())
                 .collect().asList()
                 .onItem().transformToUni(successfulMessageIds -> {
-                    LOG.info("Successfully processed " + successfulMessageIds.size() + " out of " + validMessages.size() + " messages");
-                    return acknowledgeMessages(successfulMessageIds);
-                })
-                .onItem().invoke(count ->
-                        LOG.info("Successfully acknowledged " + count + " messages"))
-                .replaceWithVoid();
+                    LOG.debug("Successfully processed " + successfulMessageIds.size() + " out of " + payments.size() + " messages");
+                    long ackStartNanos = System.nanoTime();
+                    return paymentQueue.ack(successfulMessageIds)
+                            .onItem().invoke(() -> finishTraces(traces, System.nanoTime() - ackStartNanos));
+                });
     }
 
-    private Uni<String> processStreamMessageWithBackpressure(StreamMessage<String, String, String> message) {
-        // Remove the skipping logic - process all messages
-        activeProcessingCount.incrementAndGet();
-        return processStreamMessageReactively(message)
-                .onTermination().invoke(() -> activeProcessingCount.decrementAndGet());
+    // The whole batch is acknowledged at once, so every payment in it shares the ack time
+    private void finishTraces(List<PaymentTrace> traces, long ackNanos) {
+        for (PaymentTrace trace : traces) {
+            paymentTracer.finish(trace, ackNanos);
+        }
     }
 
-    private Uni<String> processStreamMessageReactively(StreamMessage<String, String, String> message) {
-        return extractPayloadFromMessage(message)
-                .onItem().transformToUni(payloadJson ->
-                        parsePaymentRequestReactively(payloadJson, message.id()))
-                .onItem().transformToUni(paymentRequest ->
-                        processPaymentAndPersist(paymentRequest, message.id()))
-                .onFailure().invoke(failure ->
-                        LOG.error("Failed to process stream message: " + message.id(), failure));
-
+    private Uni<String> processQueuedPaymentWithBackpressure(QueuedPayment payment, PaymentTrace trace, boolean checkDuplicates) {
+        if (!checkDuplicates) {
+            return paymentIdempotencyFilter.paidWith(payment.paymentRequest())
+                    .onItem().transformToUni(strategy -> {
+                        if (strategy == null) {
+                            return processQueuedPaymentWithBackpressure(payment, trace);
+                        }
+                        LOG.debug("Reclaimed payment already processed by " + strategy + ", persisting: " +
+                                payment.paymentRequest().getCorrelationId());
+                        payment.paymentRequest().setPaymentStrategy(strategy);
+                        trace.processed(trace.dispatched(), strategy);
+                        return persistProcessedPayment(payment.paymentRequest(), 0, trace)
+                                .onItem().transform(handled -> handled ? payment.id() : null);
+                    });
+        }
+        return paymentIdempotencyFilter.tryClaim(payment.paymentRequest())
+                .onItem().transformToUni(claimed -> {
+                    if (!claimed) {
+                        LOG.debug("Skipping duplicate payment: " + payment.paymentRequest().getCorrelationId());
+                        trace.duplicate();
+                        return Uni.createFrom().item(payment.id());
+                    }
+                    return processQueuedPaymentWithBackpressure(payment, trace);
+                });
     }
 
-    private Uni<String> extractPayloadFromMessage(StreamMessage<String, String, String> message) {
-        Map<String, String> fields = message.payload();
-        String payloadJson = fields.get("payload");
-
-        if (payloadJson == null) {
-            return Uni.createFrom().failure(
-                    new IllegalArgumentException("No payload found in message: " + message.id()));
-        }
+    private Uni<String> processQueuedPaymentWithBackpressure(QueuedPayment payment, PaymentTrace trace) {
+        activeProcessingCount.incrementAndGet();
+        return processPaymentAndPersist(payment.paymentRequest(), payment.id(), trace)
+                .onTermination().invoke(() -> activeProcessingCount.decrementAndGet());
+    }
 
-        return Uni.createFrom().item(payloadJson);
+    private Uni<String> processPaymentAndPersist(PaymentRequest paymentRequest, String messageId, PaymentTrace trace) {
+        // A null id keeps the entry pending: the payment is neither persisted nor safely in the retry queue
+        return processPaymentAndPersist(paymentRequest, 0, trace)
+                .onItem().transform(handled -> handled ? messageId : null);
     }
 
-    private Uni<PaymentRequest> parsePaymentRequestReactively(String payloadJson, String messageId) {
-        try {
-            PaymentRequest paymentRequest = new JsonObject(payloadJson).mapTo(PaymentRequest.class);
-            return Uni.createFrom().item(paymentRequest);
-        } catch (Exception e) {
-            return Uni.createFrom().failure(
-                    new RuntimeException("Failed to parse payment request for message: " + messageId, e));
-        }
+    /**
+     * Runs a retry-queue entry: the processor call again, or only the insert when the
+     * processor already took the payment.
+     *
+     * @return whether the attempt was persisted, rescheduled or given up on, so the entry
+     * can leave the retry queue
+     */
+    public Uni<Boolean> retryPaymentAndPersist(PaymentRetryQueue.RetryEntry entry) {
+        PaymentRequest paymentRequest = entry.paymentRequest();
+        PaymentTrace trace = paymentTracer.start(paymentRequest, entry.attempt());
+        Uni<Boolean> retry = entry.processed()
+                ? persistProcessedPayment(paymentRequest, entry.attempt(), trace)
+                : processPaymentAndPersist(paymentRequest, entry.attempt(), trace);
+        return retry
+                .onTermination().invoke(() -> paymentTracer.finish(trace, 0))
+                .onItem().invoke(handled -> {
+                    if (!handled) {
+                        LOG.warn("Retry of payment " + paymentRequest.getCorrelationId() + " could not be persisted or " +
+                                "rescheduled, it stays leased in the retry queue");
+                    }
+                });
     }
 
-    public Uni<String> processPaymentAndPersist(PaymentRequest paymentRequest, String messageId) {
+    private Uni<Boolean> processPaymentAndPersist(PaymentRequest paymentRequest, int attempt, PaymentTrace trace) {
+        long processorStartNanos = trace.dispatched();
         return redisQueueService.processPaymentWithHealthCheck(paymentRequest)
-                .onItem().transformToUni(processedPayment -> persistPaymentSummary(paymentRequest))
-                .onItem().invoke(saved ->
-                        LOG.debug("Processed and persisted payment from stream: " + paymentRequest.getCorrelationId()))
-                .onItem().transform(ignored -> messageId)
-                .onFailure().invoke(failure -> handleProcessingFailure(failure, paymentRequest))
-                .onFailure().recoverWithItem(messageId);
+                .onItem().transformToUni(processedPayment -> {
+                    trace.processed(processorStartNanos, paymentRequest.getPaymentStrategy());
+                    return markPaidAndPersist(paymentRequest, attempt, trace);
+                })
+                .onFailure().recoverWithUni(failure -> {
+                    if (PaymentService.isAlreadyProcessed(failure)) {
+                        LOG.debug("Payment already processed by " + paymentRequest.getPaymentStrategy() + ", persisting: " +
+                                paymentRequest.getCorrelationId());
+                        trace.processed(processorStartNanos, paymentRequest.getPaymentStrategy());
+                        return markPaidAndPersist(paymentRequest, attempt, trace);
+                    }
+                    if (!PaymentService.isRetryable(failure)) {
+                        LOG.error("Payment rejected by processor " + paymentRequest.getPaymentStrategy() + ", not retrying: " +
+                                paymentRequest.getCorrelationId(), failure);
+                        trace.rejected(processorStartNanos);
+                        return paymentIdempotencyFilter.release(paymentRequest).replaceWith(true);
+                    }
+                    trace.failed(processorStartNanos);
+                    return paymentRetryQueue.schedule(paymentRequest, attempt + 1, failure);
+                });
     }
 
-    public Uni<String> processPaymentAndPersist(PaymentRequest paymentRequest) {
-        return redisQueueService.processPaymentWithHealthCheck(paymentRequest)
-                .onItem().transformToUni(processedPayment -> persistPaymentSummary(paymentRequest))
+    // Marked first, so a redelivery after a crash before the insert does not pay twice
+    private Uni<Boolean> markPaidAndPersist(PaymentRequest paymentRequest, int attempt, PaymentTrace trace) {
+        return paymentIdempotencyFilter.markPaid(paymentRequest, paymentRequest.getPaymentStrategy())
+                .onItem().transformToUni(ignored -> persistProcessedPayment(paymentRequest, attempt, trace));
+    }
+
+    // Never fails: false means neither persisted nor safely in the retry queue
+    private Uni<Boolean> persistProcessedPayment(PaymentRequest paymentRequest, int attempt, PaymentTrace trace) {
+        long persistStartNanos = System.nanoTime();
+        return persistPaymentSummary(paymentRequest)
                 .onItem().invoke(saved ->
                         LOG.debug("Processed and persisted payment from stream: " + paymentRequest.getCorrelationId()))
-                .onItem().transform(ignored -> paymentRequest.getCorrelationId())
-                .onFailure().invoke(failure -> handleProcessingFailure(failure, paymentRequest))
-                .onFailure().recoverWithItem(paymentRequest.getCorrelationId());
+                .onItem().invoke(() -> trace.persisted(persistStartNanos))
+                .replaceWith(true)
+                // The processor already took it, so from here on only the insert is retried
+                .onFailure().recoverWithUni(failure -> paymentRetryQueue.schedulePersist(paymentRequest, attempt + 1, failure));
     }
 
+    /**
+     * Retries with backoff before giving up, which also covers the batch writer turning
+     * saves away while its buffer is full.
+     */
     private Uni<PaymentRequest> persistPaymentSummary(PaymentRequest paymentRequest) {
-        return PaymentSummaryModel.insertIntoDatabase(client, paymentRequest)
+        return paymentSummaryBatchWriter.save(paymentRequest)
+                .onItem().invoke(inserted -> {
+                    if (inserted) {
+                        paymentAggregateIndex.record(paymentRequest);
+                    }
+                })
                 .onItem().invoke(() ->
                         LOG.debug("Payment summary persisted: " + paymentRequest.getCorrelationId()))
+                .onFailure().retry().withBackOff(Duration.ofMillis(10), Duration.ofMillis(500)).atMost(persistRetries)
                 .onFailure().invoke(failure ->
                         LOG.error("Failed to persist payment summary: " + paymentRequest.getCorrelationId(), failure))
                 .replaceWith(paymentRequest);
     }
-
-    private void handleProcessingFailure(Throwable failure, PaymentRequest paymentRequest) {
-        if (failure.getMessage() != null && failure.getMessage().contains("duplicate key")) {
-            LOG.warn("Duplicate payment ignored: " + paymentRequest.getCorrelationId());
-        } else {
-            LOG.error("Failed to process/persist payment: " + paymentRequest.getCorrelationId(), failure);
-        }
-    }
-
-    private Uni<Integer> acknowledgeMessages(List<String> messageIds) {
-        if (messageIds.isEmpty()) {
-            return Uni.createFrom().item(0);
-        }
-
-        return reactiveRedisClient.stream(String.class)
-                .xack(PAYMENT_STREAM, CONSUMER_GROUP, messageIds.toArray(new String[0]))
-                .onItem().invoke(count ->
-                        LOG.debug("Acknowledged " + count + " messages"));
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,100 @@
+package br.com.ggcrispim.consumer;
+
+import br.com.ggcrispim.queue.PaymentQueue;
+import br.com.ggcrispim.queue.QueuedPayment;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Claims queue entries that were delivered but never acknowledged (instance killed,
+ * OOM, lost retry scheduling) and runs them through the normal consumer pipeline.
+ * On Redis Streams consumers only ever read with {@code ">"}, so without this those
+ * payments would stay in the PEL forever.
+ */
+@ApplicationScoped
+public class PendingEntriesReclaimer {
+
+    private static final Logger LOG = Logger.getLogger(PendingEntriesReclaimer.class);
+
+    @ConfigProperty(name = "payment.stream.reclaim.min-idle", defaultValue = "30s")
+    Duration minIdle;
+
+    @ConfigProperty(name = "payment.stream.reclaim.batch-size", defaultValue = "100")
+    int batchSize;
+
+    @ConfigProperty(name = "payment.stream.reclaim.max-batches", defaultValue = "10")
+    int maxBatches;
+
+    @ConfigProperty(name = "payment.instance-id")
+    String instanceId;
+
+    @Inject
+    PaymentQueue paymentQueue;
+
+    @Inject
+    PaymentStreamConsumer paymentStreamConsumer;
+
+    private final AtomicLong pendingEntries = new AtomicLong();
+    private final Counter reclaimedEntries;
+
+    @Inject
+    public PendingEntriesReclaimer(MeterRegistry registry) {
+        registry.gauge("payments.stream.pending", pendingEntries);
+        this.reclaimedEntries = registry.counter("payments.stream.reclaimed");
+    }
+
+    @Scheduled(every = "${payment.stream.reclaim.interval:5s}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    public Uni<Void> reclaim() {
+        return refreshPendingCount()
+                .onItem().transformToUni(pending -> pending == 0
+                        ? Uni.createFrom().voidItem()
+                        : claimBatch(0))
+                .onFailure().invoke(failure -> LOG.error("Failed to reclaim pending stream entries", failure))
+                .onFailure().recoverWithNull()
+                .replaceWithVoid();
+    }
+
+    private Uni<Long> refreshPendingCount() {
+        return paymentQueue.pendingCount()
+                .onItem().invoke(pendingEntries::set);
+    }
+
+    /**
+     * Claims up to {@code batch-size} idle entries at a time until a short batch shows
+     * nothing stalled is left, or {@code max-batches} caps this run.
+     */
+    private Uni<Void> claimBatch(int batch) {
+        if (batch >= maxBatches) {
+            return Uni.createFrom().voidItem();
+        }
+        return paymentQueue.reclaim(reclaimerName(), minIdle, batchSize)
+                .onItem().transformToUni(claimed -> processClaimed(claimed)
+                        .onItem().transformToUni(ignored -> claimed.size() < batchSize
+                                ? Uni.createFrom().voidItem()
+                                : claimBatch(batch + 1)));
+    }
+
+    private Uni<Void> processClaimed(List<QueuedPayment> claimed) {
+        if (claimed.isEmpty()) {
+            return Uni.createFrom().voidItem();
+        }
+        LOG.warn("Reclaimed " + claimed.size() + " stalled stream entries");
+        reclaimedEntries.increment(claimed.size());
+        return paymentStreamConsumer.processReclaimedPayments(claimed);
+    }
+
+    // A dedicated owner so reclaimed entries left behind by this instance are claimable like any other
+    private String reclaimerName() {
+        return instanceId + "-reclaimer";
+    }
+}
@@ -0,0 +1,53 @@
+package br.com.ggcrispim.controller;
+
+import br.com.ggcrispim.trace.PaymentTracer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.vertx.http.ManagementInterface;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+/**
+ * Operator endpoints, served on the management interface ({@code quarkus.management.port})
+ * next to the metrics rather than on the public port, so the load balancer never routes
+ * to them.
+ */
+@ApplicationScoped
+public class AdminRoutes {
+
+    private static final String SLOWEST_PATH = "/admin/payments/slowest";
+
+    @Inject
+    PaymentTracer paymentTracer;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    void register(@Observes ManagementInterface managementInterface) {
+        Router router = managementInterface.router();
+        router.get(SLOWEST_PATH).handler(this::slowest);
+        router.delete(SLOWEST_PATH).handler(this::resetSlowest);
+    }
+
+    /**
+     * The slowest payments handled by this instance, slowest first, with the time spent
+     * in each stage.
+     */
+    private void slowest(RoutingContext context) {
+        try {
+            context.response()
+                    .putHeader("Content-Type", "application/json")
+                    .end(objectMapper.writeValueAsString(paymentTracer.slowest()));
+        } catch (JsonProcessingException e) {
+            context.fail(e);
+        }
+    }
+
+    private void resetSlowest(RoutingContext context) {
+        paymentTracer.reset();
+        context.response().setStatusCode(204).end();
+    }
+}
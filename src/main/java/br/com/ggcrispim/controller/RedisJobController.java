@@ -2,6 +2,8 @@ package br.com.ggcrispim.controller;
 
 import br.com.ggcrispim.dto.PaymentRequest;
 import br.com.ggcrispim.service.RedisQueueService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.smallrye.mutiny.Uni;
 import io.smallrye.mutiny.unchecked.Unchecked;
 import jakarta.inject.Inject;
@@ -9,26 +11,39 @@ import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.core.MediaType;
 
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
 @Path("/payments")
 @Consumes(MediaType.APPLICATION_JSON)
 @Produces(MediaType.APPLICATION_JSON)
 public class RedisJobController {
 
     private final RedisQueueService queueService;
+    private final Timer ingestTimer;
 
     @Inject
-    public RedisJobController(RedisQueueService redisQueueService) {
+    public RedisJobController(RedisQueueService redisQueueService, MeterRegistry registry) {
         this.queueService = redisQueueService;
+        this.ingestTimer = Timer.builder("payments.ingest")
+                .description("Time to accept a payment on POST /payments")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(100_000))
+                .maximumExpectedValue(Duration.ofSeconds(5))
+                .register(registry);
     }
 
     @POST
     public Uni<Void> enqueueJob(PaymentRequest paymentRequest) {
+        long startNanos = System.nanoTime();
         return
                 queueService.enqueueJob(paymentRequest)
+                .onTermination().invoke(() -> ingestTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS))
                 .onItem().ignore().andContinueWithNull()
-                .onFailure().invoke(Unchecked.consumer(failure -> {
+                .onFailure(failure -> !(failure instanceof WebApplicationException)).invoke(Unchecked.consumer(failure -> {
                     throw new RuntimeException("Failed to enqueue job: " + paymentRequest.getCorrelationId(), failure);
                 }));
     }
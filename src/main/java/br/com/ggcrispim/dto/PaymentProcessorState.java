@@ -1,5 +1,8 @@
 package br.com.ggcrispim.dto;
 
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+@RegisterForReflection
 public class PaymentProcessorState {
 
 
@@ -1,8 +1,10 @@
 package br.com.ggcrispim.dto;
 
 import br.com.ggcrispim.model.PaymentStrategy;
+import io.quarkus.runtime.annotations.RegisterForReflection;
 import java.time.LocalDateTime;
 
+@RegisterForReflection
 public class PaymentRequest {
 
     private String correlationId;
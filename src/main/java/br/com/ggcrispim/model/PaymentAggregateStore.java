@@ -0,0 +1,242 @@
+package br.com.ggcrispim.model;
+
+import br.com.ggcrispim.dto.PaymentRequest;
+import br.com.ggcrispim.dto.PaymentSummary;
+import br.com.ggcrispim.dto.Summary;
+import br.com.ggcrispim.redis.LuaScript;
+import io.quarkus.redis.datasource.ReactiveRedisDataSource;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.redis.client.Response;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cluster-wide payment counters in Redis, updated by every replica, so any of them can
+ * answer {@code /payments-summary} consistently without scanning Postgres. Only kept
+ * when {@code payment.summary.source=redis}: the counters are updated after the insert
+ * commits and a failed update is not replayed, so they can fall behind the table.
+ *
+ * <p>Each strategy has, per hour, a {@code payments:agg:<strategy>:s:<hour>} hash of
+ * per-second buckets and, per second, a {@code payments:agg:<strategy>:ms:<second>} hash of
+ * per-millisecond buckets, each bucket holding a {@code c:<bucket>} count and an
+ * {@code a:<bucket>} amount in cents. A range query reads whole seconds from the coarse
+ * hashes and only the partial seconds at each edge from the fine ones, in a single script
+ * call. {@code payments:agg:bounds} tracks the oldest and newest payment so open-ended
+ * ranges stay cheap.
+ *
+ * <p>Nothing is kept forever, so Redis can run with {@code noeviction}: an hour hash
+ * expires {@code retention} after its hour starts and a fine hash {@code millis-ttl} after
+ * its last write. The store can therefore answer ranges that start less than
+ * {@code retention} ago (rounded down to the hour) and whose partial edge seconds are
+ * younger than {@code millis-ttl}; anything else gets {@code null}, and the caller reads
+ * the database. An open-ended range is clamped to the bounds first, so it falls back
+ * once the oldest payment leaves the horizon.
+ *
+ * <p>The hash names are built inside the scripts, so this needs a single Redis node
+ * rather than a cluster.
+ */
+@ApplicationScoped
+public class PaymentAggregateStore {
+
+    private static final String BOUNDS_KEY = "payments:agg:bounds";
+    private static final String[] SECONDS_PREFIXES = {"payments:agg:DEFAULT:s:", "payments:agg:FALLBACK:s:"};
+    private static final String[] MILLIS_PREFIXES = {"payments:agg:DEFAULT:ms:", "payments:agg:FALLBACK:ms:"};
+
+    // ARGV: millis ttl, retention, now, the two second and the two millisecond hash prefixes,
+    // then (strategy ordinal, epoch millis, cents) triples
+    private static final LuaScript RECORD_SCRIPT = new LuaScript("""
+            local retention, now = tonumber(ARGV[2]), tonumber(ARGV[3])
+            local lo = tonumber(redis.call('HGET', KEYS[1], 'min'))
+            local hi = tonumber(redis.call('HGET', KEYS[1], 'max'))
+            for i = 8, #ARGV, 3 do
+                local strategy = tonumber(ARGV[i])
+                local ms = tonumber(ARGV[i + 1])
+                local second = math.floor(ms / 1000)
+                local hour = math.floor(second / 3600)
+                -- An hour hash lives until retention after its hour starts, however late it is written
+                local ttl = hour * 3600000 + retention - now
+                if ttl > 0 then
+                    local secondsKey = ARGV[4 + strategy] .. hour
+                    local millisKey = ARGV[6 + strategy] .. second
+                    redis.call('HINCRBY', secondsKey, 'c:' .. second, 1)
+                    redis.call('HINCRBY', secondsKey, 'a:' .. second, ARGV[i + 2])
+                    redis.call('PEXPIRE', secondsKey, ttl)
+                    redis.call('HINCRBY', millisKey, 'c:' .. ms, 1)
+                    redis.call('HINCRBY', millisKey, 'a:' .. ms, ARGV[i + 2])
+                    redis.call('PEXPIRE', millisKey, ARGV[1])
+                end
+                if not lo or ms < lo then lo = ms end
+                if not hi or ms > hi then hi = ms end
+            end
+            redis.call('HSET', KEYS[1], 'min', lo, 'max', hi)
+            return (#ARGV - 7) / 3
+            """);
+
+    // ARGV: from, to (epoch millis, inclusive), now, retention, the two second and the two millisecond
+    // hash prefixes. Returns count/cents pairs per strategy, or {-1} when the range starts past the
+    // retention horizon or an edge second's fine buckets expired
+    private static final LuaScript SUMMARY_SCRIPT = new LuaScript("""
+            local function total(key, first, last)
+                local count, cents = 0, 0
+                local i = first
+                while i <= last do
+                    local j = math.min(last, i + 499)
+                    local fields = {}
+                    for b = i, j do
+                        fields[#fields + 1] = 'c:' .. b
+                        fields[#fields + 1] = 'a:' .. b
+                    end
+                    local values = redis.call('HMGET', key, unpack(fields))
+                    for k = 1, #values, 2 do
+                        if values[k] then
+                            count = count + tonumber(values[k])
+                            cents = cents + tonumber(values[k + 1])
+                        end
+                    end
+                    i = j + 1
+                end
+                return count, cents
+            end
+
+            -- Whole seconds [first, last], across the hour hashes they fall in
+            local function seconds(prefix, first, last)
+                local count, cents = 0, 0
+                local hour = math.floor(first / 3600)
+                while hour * 3600 <= last do
+                    local c, a = total(prefix .. hour, math.max(first, hour * 3600), math.min(last, hour * 3600 + 3599))
+                    count, cents = count + c, cents + a
+                    hour = hour + 1
+                end
+                return count, cents
+            end
+
+            -- Milliseconds [first, last] of one second; nil once its fine buckets expired
+            local function partial(secondsPrefix, prefix, second, first, last)
+                local millisKey = prefix .. second
+                if redis.call('EXISTS', millisKey) == 0 then
+                    local secondsKey = secondsPrefix .. math.floor(second / 3600)
+                    if redis.call('HEXISTS', secondsKey, 'c:' .. second) == 1 then
+                        return nil
+                    end
+                    return 0, 0
+                end
+                return total(millisKey, first, last)
+            end
+
+            local result = {0, 0, 0, 0}
+            local lo = tonumber(redis.call('HGET', KEYS[1], 'min'))
+            local hi = tonumber(redis.call('HGET', KEYS[1], 'max'))
+            if not lo then return result end
+            -- Clamped to whole seconds, so an open-ended range never needs the fine buckets of its bounds
+            local from = math.max(tonumber(ARGV[1]), lo - lo % 1000)
+            local to = math.min(tonumber(ARGV[2]), hi - hi % 1000 + 999)
+            if from > to then return result end
+            -- The hour hash holding from may already have expired
+            if from - from % 3600000 + tonumber(ARGV[4]) <= tonumber(ARGV[3]) then return {-1} end
+
+            local fromSecond = math.floor(from / 1000)
+            local toSecond = math.floor(to / 1000)
+            local firstWhole = fromSecond
+            if from % 1000 ~= 0 then firstWhole = fromSecond + 1 end
+            local lastWhole = toSecond
+            if to % 1000 ~= 999 then lastWhole = toSecond - 1 end
+
+            for s = 0, 1 do
+                local secondsPrefix, prefix = ARGV[s + 5], ARGV[s + 7]
+                local count, cents = 0, 0
+                if firstWhole <= lastWhole then
+                    count, cents = seconds(secondsPrefix, firstWhole, lastWhole)
+                end
+                local headCoversTail = false
+                if firstWhole > fromSecond then
+                    local c, a = partial(secondsPrefix, prefix, fromSecond, from, math.min(to, fromSecond * 1000 + 999))
+                    if not c then return {-1} end
+                    count, cents = count + c, cents + a
+                    headCoversTail = fromSecond == toSecond
+                end
+                if lastWhole < toSecond and not headCoversTail then
+                    local c, a = partial(secondsPrefix, prefix, toSecond, math.max(from, toSecond * 1000), to)
+                    if not c then return {-1} end
+                    count, cents = count + c, cents + a
+                end
+                result[s * 2 + 1] = count
+                result[s * 2 + 2] = cents
+            end
+            return result
+            """);
+
+    @ConfigProperty(name = "payment.summary.source", defaultValue = "database")
+    String summarySource;
+
+    @ConfigProperty(name = "payment.summary.redis.millis-ttl", defaultValue = "2m")
+    Duration millisTtl;
+
+    @ConfigProperty(name = "payment.summary.redis.retention", defaultValue = "2h")
+    Duration retention;
+
+    @Inject
+    ReactiveRedisDataSource reactiveRedisClient;
+
+    public Uni<Void> recordAll(List<PaymentRequest> paymentRequests) {
+        return recordAll(paymentRequests, System.currentTimeMillis());
+    }
+
+    Uni<Void> recordAll(List<PaymentRequest> paymentRequests, long nowMillis) {
+        if (paymentRequests.isEmpty() || !"redis".equals(summarySource)) {
+            return Uni.createFrom().voidItem();
+        }
+        List<String> args = new ArrayList<>(9 + paymentRequests.size() * 3);
+        args.add("1");
+        args.add(BOUNDS_KEY);
+        args.add(String.valueOf(millisTtl.toMillis()));
+        args.add(String.valueOf(retention.toMillis()));
+        args.add(String.valueOf(nowMillis));
+        args.addAll(List.of(SECONDS_PREFIXES));
+        args.addAll(List.of(MILLIS_PREFIXES));
+        for (PaymentRequest paymentRequest : paymentRequests) {
+            args.add(String.valueOf(paymentRequest.getPaymentStrategy().ordinal()));
+            args.add(String.valueOf(epochMillis(paymentRequest.getRequestedAt())));
+            args.add(String.valueOf(Math.round(paymentRequest.getAmount() * 100)));
+        }
+        return RECORD_SCRIPT.execute(reactiveRedisClient, args.toArray(new String[0]))
+                .replaceWithVoid();
+    }
+
+    /**
+     * @return the totals of {@code [from, to]}, or {@code null} when the range starts past
+     * the retention horizon or the millisecond buckets an edge of the range needs have expired
+     */
+    public Uni<PaymentSummary> summarize(LocalDateTime from, LocalDateTime to) {
+        return summarize(from, to, System.currentTimeMillis());
+    }
+
+    Uni<PaymentSummary> summarize(LocalDateTime from, LocalDateTime to, long nowMillis) {
+        String[] args = {
+                "1", BOUNDS_KEY,
+                String.valueOf(epochMillis(from)), String.valueOf(epochMillis(to)),
+                String.valueOf(nowMillis), String.valueOf(retention.toMillis()),
+                SECONDS_PREFIXES[0], SECONDS_PREFIXES[1], MILLIS_PREFIXES[0], MILLIS_PREFIXES[1]};
+        return SUMMARY_SCRIPT.execute(reactiveRedisClient, args)
+                .onItem().transform(PaymentAggregateStore::toPaymentSummary);
+    }
+
+    private static PaymentSummary toPaymentSummary(Response response) {
+        if (response.size() < 4) {
+            return null;
+        }
+        return new PaymentSummary(
+                new Summary(response.get(0).toInteger(), response.get(1).toLong() / 100.0),
+                new Summary(response.get(2).toInteger(), response.get(3).toLong() / 100.0));
+    }
+
+    private static long epochMillis(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1000 + dateTime.getNano() / 1_000_000;
+    }
+}
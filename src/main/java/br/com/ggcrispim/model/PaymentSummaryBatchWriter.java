@@ -0,0 +1,179 @@
+package br.com.ggcrispim.model;
+
+import br.com.ggcrispim.batch.Coalescer;
+import br.com.ggcrispim.dto.PaymentRequest;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.UniEmitter;
+import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.sqlclient.Pool;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects processed payments from every consumer lane and writes them with
+ * {@link PaymentSummaryModel#insertBatch}, coalesced by a {@link Coalescer}. A batch is
+ * flushed when it reaches {@code batch-size} or when the first payment in it has waited
+ * {@code flush-interval}, whichever comes first. Each caller's {@link Uni} completes when its batch commits,
+ * with {@code false} if the payment had already been persisted or an earlier copy in the same
+ * batch is the one written.
+ *
+ * <p>With {@code payment.persist.mode=staging} batches are appended to the index-free
+ * {@code payment_summary_staging} table instead, and {@link PaymentSummaryStagingMerger}
+ * moves them into {@code payment_summary}. Callers then always get {@code false}: whether
+ * a payment is a duplicate is only known at merge time, so the merger records the rows that
+ * turn out new, in the Redis aggregates and the in-process index alike.
+ *
+ * <p>At most {@code max-pending} payments are buffered or being written at once; past
+ * that {@link #save} fails right away, so callers back off instead of growing the buffer.
+ */
+@ApplicationScoped
+public class PaymentSummaryBatchWriter {
+
+    private static final Logger LOG = Logger.getLogger(PaymentSummaryBatchWriter.class);
+
+    @ConfigProperty(name = "payment.persist.batch-size", defaultValue = "100")
+    int batchSize;
+
+    @ConfigProperty(name = "payment.persist.flush-interval", defaultValue = "5ms")
+    Duration flushInterval;
+
+    @ConfigProperty(name = "payment.persist.max-pending", defaultValue = "4096")
+    int maxPending;
+
+    @ConfigProperty(name = "payment.persist.mode", defaultValue = "insert")
+    String mode;
+
+    @Inject
+    Pool client;
+
+    @Inject
+    Vertx vertx;
+
+    @Inject
+    PaymentAggregateStore paymentAggregateStore;
+
+    @Inject
+    MeterRegistry registry;
+
+    private Timer flushTimer;
+    private DistributionSummary flushSize;
+
+    private Coalescer<PaymentRequest, Boolean> coalescer;
+    // Buffered plus being written
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    @PostConstruct
+    void init() {
+        flushTimer = Timer.builder("payments.persist.batch")
+                .description("Time to insert one batch of payment summaries")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(5))
+                .register(registry);
+        flushSize = DistributionSummary.builder("payments.persist.batch.size")
+                .description("Payment summaries per insert")
+                .register(registry);
+        coalescer = new Coalescer<>(vertx, batchSize, flushInterval, this::flush);
+    }
+
+    public boolean isStaging() {
+        return "staging".equals(mode);
+    }
+
+    public Uni<Boolean> save(PaymentRequest paymentRequest) {
+        return Uni.createFrom().deferred(() -> {
+            if (pendingCount.incrementAndGet() > maxPending) {
+                pendingCount.decrementAndGet();
+                return Uni.createFrom().failure(
+                        new IllegalStateException("Persist buffer full: " + maxPending + " payments pending"));
+            }
+            return coalescer.submit(paymentRequest);
+        });
+    }
+
+    private void flush(List<PaymentRequest> payments, List<UniEmitter<? super Boolean>> emitters) {
+        flushSize.record(payments.size());
+        if (isStaging()) {
+            stage(payments, emitters);
+            return;
+        }
+        // A redelivery can land in the same batch as the original: only the first copy is written,
+        // so a single caller sees true and the aggregates count the payment once
+        UUID[] correlationIds = new UUID[payments.size()];
+        boolean[] firstCopy = new boolean[payments.size()];
+        Set<UUID> batchIds = new HashSet<>(payments.size() * 2);
+        List<PaymentRequest> unique = new ArrayList<>(payments.size());
+        for (int i = 0; i < payments.size(); i++) {
+            correlationIds[i] = UUID.fromString(payments.get(i).getCorrelationId());
+            if (batchIds.add(correlationIds[i])) {
+                firstCopy[i] = true;
+                unique.add(payments.get(i));
+            }
+        }
+        long startNanos = System.nanoTime();
+        PaymentSummaryModel.insertBatch(client, unique)
+                .onItem().invoke(() -> flushTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS))
+                .onItem().call(inserted -> recordAggregates(unique, inserted))
+                .onTermination().invoke(() -> release(payments.size()))
+                .subscribe().with(
+                        inserted -> {
+                            LOG.debug("Persisted " + inserted.size() + " of " + payments.size() + " payment summaries");
+                            for (int i = 0; i < payments.size(); i++) {
+                                emitters.get(i).complete(firstCopy[i] && inserted.contains(correlationIds[i]));
+                            }
+                        },
+                        failure -> {
+                            LOG.error("Failed to persist batch of " + payments.size() + " payment summaries", failure);
+                            emitters.forEach(emitter -> emitter.fail(failure));
+                        });
+    }
+
+    private void stage(List<PaymentRequest> payments, List<UniEmitter<? super Boolean>> emitters) {
+        long startNanos = System.nanoTime();
+        PaymentSummaryModel.stageBatch(client, payments)
+                .onItem().invoke(() -> flushTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS))
+                .onTermination().invoke(() -> release(payments.size()))
+                .subscribe().with(
+                        staged -> {
+                            LOG.debug("Staged " + staged + " payment summaries");
+                            emitters.forEach(emitter -> emitter.complete(false));
+                        },
+                        failure -> {
+                            LOG.error("Failed to stage batch of " + payments.size() + " payment summaries", failure);
+                            emitters.forEach(emitter -> emitter.fail(failure));
+                        });
+    }
+
+    private void release(int written) {
+        pendingCount.addAndGet(-written);
+    }
+
+    // Only rows that were really inserted are counted, so redeliveries never inflate the totals
+    private Uni<Void> recordAggregates(List<PaymentRequest> payments, Set<UUID> inserted) {
+        List<PaymentRequest> newPayments = new ArrayList<>(inserted.size());
+        for (PaymentRequest payment : payments) {
+            if (inserted.contains(UUID.fromString(payment.getCorrelationId()))) {
+                newPayments.add(payment);
+            }
+        }
+        return paymentAggregateStore.recordAll(newPayments)
+                .onFailure().invoke(failure ->
+                        LOG.error("Failed to update aggregates for " + newPayments.size() + " payments", failure))
+                .onFailure().recoverWithNull();
+    }
+}
@@ -2,104 +2,161 @@ package br.com.ggcrispim.model;
 
 import br.com.ggcrispim.dto.PaymentRequest;
 import br.com.ggcrispim.dto.PaymentSummary;
+import br.com.ggcrispim.dto.Summary;
 import io.smallrye.mutiny.Uni;
 import io.vertx.mutiny.sqlclient.Pool;
+import io.vertx.mutiny.sqlclient.Row;
 import io.vertx.mutiny.sqlclient.Tuple;
-import jakarta.persistence.Column;
-import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
-import jakarta.persistence.Id;
-import jakarta.persistence.Table;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
-@Entity
-@Table(name = "payment_summary")
-public class PaymentSummaryModel {
-
-    public PaymentSummaryModel() {}
-
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    Long id;
-
-    @Column(unique = true, nullable = false)
-    private UUID correlationId;
-
-    @Column
-    private double amount;
-
-    @Column(name="requested_at")
-    private LocalDateTime requestedAt;
-
-    @Column(name="payment_strategy")
-    private PaymentStrategy paymentStrategy;
-
-    public UUID getCorrelationId() {
-        return correlationId;
+/**
+ * SQL for the {@code payment_summary} table and its staging table, on the reactive PG
+ * client. There is no ORM: every statement is a prepared query over arrays or scalars.
+ */
+public final class PaymentSummaryModel {
+
+    // Claims the ids of the "batch" CTE (distinct per correlation id), yielding those not persisted before
+    private static final String NEW_IDS = "new_ids AS (INSERT INTO payment_ids (correlationid, requested_at) " +
+            "SELECT correlationid, requested_at FROM batch ON CONFLICT DO NOTHING RETURNING correlationid) ";
+
+    private PaymentSummaryModel() {}
+
+    /**
+     * Aggregates the range per strategy in the database. The bounds are typed so the
+     * planner prunes partitions outside the range at execution time; within the
+     * remaining ones the BRIN index on requested_at skips blocks outside it.
+     */
+    public static Uni<PaymentSummary> summarizeByDateRange(Pool client, LocalDateTime startDate, LocalDateTime endDate) {
+        return summarize(client, "SELECT payment_strategy, COUNT(*) AS total_requests, COALESCE(SUM(amount), 0) AS total_amount " +
+                "FROM payment_summary WHERE requested_at >= $1::timestamp AND requested_at <= $2::timestamp GROUP BY payment_strategy", startDate, endDate);
     }
 
-    public void setCorrelationId(UUID correlationId) {
-        this.correlationId = correlationId;
+    /**
+     * Like {@link #summarizeByDateRange}, but also counts rows still waiting in
+     * {@code payment_summary_staging}, once per correlation id and only if they were not
+     * merged already, which is a primary key probe on {@code payment_ids}.
+     */
+    public static Uni<PaymentSummary> summarizeByDateRangeWithStaged(Pool client, LocalDateTime startDate, LocalDateTime endDate) {
+        return summarize(client, "SELECT payment_strategy, COUNT(*) AS total_requests, COALESCE(SUM(amount), 0) AS total_amount FROM (" +
+                "SELECT payment_strategy, amount FROM payment_summary WHERE requested_at >= $1::timestamp AND requested_at <= $2::timestamp " +
+                "UNION ALL " +
+                "SELECT DISTINCT ON (s.correlationid) s.payment_strategy, s.amount FROM payment_summary_staging s " +
+                "WHERE s.requested_at >= $1::timestamp AND s.requested_at <= $2::timestamp " +
+                "AND NOT EXISTS (SELECT 1 FROM payment_ids i WHERE i.correlationid = s.correlationid)" +
+                ") payments GROUP BY payment_strategy", startDate, endDate);
     }
 
-    public double getAmount() {
-        return amount;
-    }
-
-    public void setAmount(double amount) {
-        this.amount = amount;
-    }
-
-    public LocalDateTime getRequestedAt() {
-        return requestedAt;
-    }
-
-    public void setRequestedAt(LocalDateTime requestedAt) {
-        this.requestedAt = requestedAt;
+    private static Uni<PaymentSummary> summarize(Pool client, String sql, LocalDateTime startDate, LocalDateTime endDate) {
+        return client
+                .preparedQuery(sql)
+                .execute(Tuple.of(startDate, endDate))
+                .onItem()
+                .transform(rows -> {
+                    Summary defaultSummary = new Summary(0, 0);
+                    Summary fallbackSummary = new Summary(0, 0);
+                    for (Row row : rows) {
+                        Summary summary = new Summary(row.getLong("total_requests").intValue(), row.getDouble("total_amount"));
+                        if (row.getInteger("payment_strategy") == PaymentStrategy.FALLBACK.ordinal()) {
+                            fallbackSummary = summary;
+                        } else {
+                            defaultSummary = summary;
+                        }
+                    }
+                    return new PaymentSummary(defaultSummary, fallbackSummary);
+                });
     }
 
-    public PaymentStrategy getPaymentStrategy() {
-        return paymentStrategy;
+    /**
+     * Inserts the whole batch in a single round trip by unnesting one array per column.
+     * Payments that were already persisted (redelivered entries, client re-POSTs) are
+     * skipped: each id is first claimed in the unpartitioned {@code payment_ids}, in the
+     * same statement, and only the rows whose claim succeeded reach
+     * {@code payment_summary}.
+     *
+     * @return the correlation ids that were actually inserted
+     */
+    public static Uni<Set<UUID>> insertBatch(Pool client, List<PaymentRequest> paymentRequests) {
+        return client
+                .preparedQuery("WITH batch AS (SELECT DISTINCT ON (correlationid) * " +
+                        "FROM UNNEST($1::uuid[], $2::float8[], $3::timestamp[], $4::int[]) " +
+                        "AS b(correlationid, amount, requested_at, payment_strategy)), " +
+                        NEW_IDS +
+                        "INSERT INTO payment_summary (correlationid, amount, requested_at, payment_strategy) " +
+                        "SELECT b.correlationid, b.amount, b.requested_at, b.payment_strategy FROM batch b JOIN new_ids USING (correlationid) " +
+                        "RETURNING correlationid")
+                .execute(columns(paymentRequests))
+                .onItem().transform(rows -> {
+                    Set<UUID> inserted = new HashSet<>(rows.rowCount() * 2);
+                    for (Row row : rows) {
+                        inserted.add(row.getUUID("correlationid"));
+                    }
+                    return inserted;
+                });
     }
 
-    public void setPaymentStrategy(PaymentStrategy paymentStrategy) {
-        this.paymentStrategy = paymentStrategy;
+    /**
+     * Appends the batch to {@code payment_summary_staging}, which has no indexes or
+     * constraints, so Postgres only writes heap pages and WAL. Duplicates are resolved
+     * later by {@link #mergeStaged}.
+     */
+    public static Uni<Integer> stageBatch(Pool client, List<PaymentRequest> paymentRequests) {
+        return client
+                .preparedQuery("INSERT INTO payment_summary_staging (correlationid, amount, requested_at, payment_strategy) " +
+                        "SELECT * FROM UNNEST($1::uuid[], $2::float8[], $3::timestamp[], $4::int[])")
+                .execute(columns(paymentRequests))
+                .onItem().transform(rows -> rows.rowCount());
     }
 
-    public static Uni<List<PaymentSummaryModel>> findPaymentsByDateRange(Pool client, LocalDateTime startDate, LocalDateTime endDate) {
+    /**
+     * Moves up to {@code limit} staged rows into {@code payment_summary} in one statement,
+     * so they are deleted from staging only if the insert commits. Rows locked by a
+     * concurrent merge are skipped.
+     *
+     * @return the payments that were new, i.e. not already in {@code payment_summary}
+     */
+    public static Uni<List<PaymentRequest>> mergeStaged(Pool client, int limit) {
         return client
-                .preparedQuery("SELECT * from payment_summary WHERE requested_at >= $1 AND requested_at <= $2")
-                .execute(Tuple.of(startDate, endDate))
-                .onItem()
-                .transform(rows -> {
-                    if (rows.rowCount() == 0) {
-                        return List.of(); // Return empty list
+                .preparedQuery("WITH staged AS (DELETE FROM payment_summary_staging WHERE ctid = ANY(ARRAY(" +
+                        "SELECT ctid FROM payment_summary_staging LIMIT $1 FOR UPDATE SKIP LOCKED)) " +
+                        "RETURNING correlationid, amount, requested_at, payment_strategy), " +
+                        "batch AS (SELECT DISTINCT ON (correlationid) * FROM staged), " +
+                        NEW_IDS +
+                        "INSERT INTO payment_summary (correlationid, amount, requested_at, payment_strategy) " +
+                        "SELECT b.correlationid, b.amount, b.requested_at, b.payment_strategy FROM batch b JOIN new_ids USING (correlationid) " +
+                        "RETURNING correlationid, amount, requested_at, payment_strategy")
+                .execute(Tuple.of(limit))
+                .onItem().transform(rows -> {
+                    PaymentStrategy[] strategies = PaymentStrategy.values();
+                    List<PaymentRequest> merged = new ArrayList<>(rows.rowCount());
+                    for (Row row : rows) {
+                        PaymentRequest paymentRequest = new PaymentRequest(row.getUUID("correlationid").toString(),
+                                row.getDouble("amount"), row.getLocalDateTime("requested_at"));
+                        paymentRequest.setPaymentStrategy(strategies[row.getInteger("payment_strategy")]);
+                        merged.add(paymentRequest);
                     }
-                    return StreamSupport.stream(rows.spliterator(), false)
-                            .map(row -> {
-                                PaymentSummaryModel payment = new PaymentSummaryModel();
-                                payment.setCorrelationId(row.getUUID("correlationid"));
-                                payment.setAmount(row.getDouble("amount"));
-                                payment.setRequestedAt(row.getLocalDateTime("requested_at"));
-                                payment.setPaymentStrategy(PaymentStrategy.DEFAULT);
-                                return payment;
-                            })
-                            .collect(Collectors.toList());
+                    return merged;
                 });
     }
 
-    public static Uni<Void> insertIntoDatabase(Pool client, PaymentRequest PaymentRequest) {
-        return client
-                .preparedQuery("INSERT INTO payment_summary (correlationid, amount, requested_at, payment_strategy) VALUES ($1, $2, $3, $4)")
-                .execute(Tuple.of(PaymentRequest.getCorrelationId(), PaymentRequest.getAmount(), PaymentRequest.getRequestedAt(), PaymentStrategy.DEFAULT))
-                .onFailure().invoke(failure -> {
-                    // Log the error (optional)
-                    System.err.println("Failed to insert payment summary: " + failure.getMessage());
-                }).replaceWithVoid();
+    // One array per column, for UNNEST
+    private static Tuple columns(List<PaymentRequest> paymentRequests) {
+        int size = paymentRequests.size();
+        UUID[] correlationIds = new UUID[size];
+        Double[] amounts = new Double[size];
+        LocalDateTime[] requestedAts = new LocalDateTime[size];
+        Integer[] strategies = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            PaymentRequest paymentRequest = paymentRequests.get(i);
+            correlationIds[i] = UUID.fromString(paymentRequest.getCorrelationId());
+            amounts[i] = paymentRequest.getAmount();
+            requestedAts[i] = paymentRequest.getRequestedAt();
+            strategies[i] = paymentRequest.getPaymentStrategy().ordinal();
+        }
+        return Tuple.of(correlationIds, amounts, requestedAts, strategies);
     }
 }
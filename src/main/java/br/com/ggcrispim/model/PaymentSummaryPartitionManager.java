@@ -0,0 +1,156 @@
+package br.com.ggcrispim.model;
+
+import br.com.ggcrispim.service.ProcessorHealthMonitor;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.Pool;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.Tuple;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps {@code payment_summary} range-partitioned on {@code requested_at}. One partition
+ * covers {@code interval}; the current one, the one before it and {@code ahead} more are
+ * created in advance, so inserts never land in {@code payment_summary_default}, the
+ * catch-all for stray timestamps. Partitions that ended more than {@code retention} ago
+ * are dropped whole, which is far cheaper than deleting their rows, together with their
+ * ids in {@code payment_ids}.
+ *
+ * <p>Partitions are created by the {@code create_payment_summary_partition} function of
+ * {@code init.sql}, which also creates the first ones, so inserts do not depend on this
+ * bean having run. It serializes concurrent callers and moves rows that already landed
+ * in the default partition into the new one. Every instance makes sure its partitions
+ * exist on startup; after that only the health-poll leader maintains them. Partition
+ * names encode their start, e.g. {@code payment_summary_p20250715_1400}, so
+ * {@code interval} cannot change on an existing table.
+ */
+@ApplicationScoped
+public class PaymentSummaryPartitionManager {
+
+    private static final Logger LOG = Logger.getLogger(PaymentSummaryPartitionManager.class);
+    private static final String PARTITION_PREFIX = "payment_summary_p";
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd'_'HHmm");
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @ConfigProperty(name = "payment.summary.partition.interval", defaultValue = "1h")
+    Duration interval;
+
+    @ConfigProperty(name = "payment.summary.partition.ahead", defaultValue = "3")
+    int ahead;
+
+    @ConfigProperty(name = "payment.summary.partition.retention", defaultValue = "7d")
+    Duration retention;
+
+    @Inject
+    Pool client;
+
+    @Inject
+    ProcessorHealthMonitor processorHealthMonitor;
+
+    void onStart(@Observes StartupEvent event) {
+        createPartitions().subscribe().with(
+                ignored -> LOG.info("Payment summary partitions ready"),
+                failure -> LOG.error("Failed to create payment summary partitions", failure));
+    }
+
+    @Scheduled(every = "${payment.summary.partition.maintenance-interval:1m}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    public Uni<Void> maintain() {
+        if (!processorHealthMonitor.isLeader()) {
+            return Uni.createFrom().voidItem();
+        }
+        return createPartitions()
+                .onItem().transformToUni(ignored -> dropExpiredPartitions())
+                .onFailure().invoke(failure -> LOG.error("Failed to maintain payment summary partitions", failure))
+                .onFailure().recoverWithNull();
+    }
+
+    private Uni<Void> createPartitions() {
+        LocalDateTime current = floor(LocalDateTime.now(), interval);
+        return Multi.createFrom().range(-1, ahead + 1)
+                .onItem().transformToUniAndConcatenate(i -> {
+                    LocalDateTime from = current.plus(interval.multipliedBy(i));
+                    String name = partitionName(from);
+                    return client.preparedQuery("SELECT create_payment_summary_partition($1, $2, $3) AS created")
+                            .execute(Tuple.of(name, from, from.plus(interval)))
+                            .onItem().invoke(rows -> {
+                                if (rows.iterator().next().getBoolean("created")) {
+                                    LOG.info("Created payment summary partition " + name);
+                                }
+                            })
+                            .onFailure().invoke(failure ->
+                                    LOG.warn("Failed to create payment summary partition " + name + ": " + failure.getMessage()))
+                            .onFailure().recoverWithNull();
+                })
+                .collect().last()
+                .replaceWithVoid();
+    }
+
+    private Uni<Void> dropExpiredPartitions() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        return client
+                .query("SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "WHERE i.inhparent = 'payment_summary'::regclass")
+                .execute()
+                .onItem().transformToUni(rows -> {
+                    List<String> statements = new ArrayList<>();
+                    for (Row row : rows) {
+                        String name = row.getString("relname");
+                        LocalDateTime start = partitionStart(name);
+                        if (start != null && !start.plus(interval).isAfter(cutoff)) {
+                            LOG.info("Dropping expired payment summary partition " + name);
+                            // One simple query, so one transaction: the ids go only if the rows do
+                            statements.add("DROP TABLE IF EXISTS " + name + "; " +
+                                    "DELETE FROM payment_ids WHERE requested_at >= '" + BOUND_FORMAT.format(start) +
+                                    "' AND requested_at < '" + BOUND_FORMAT.format(start.plus(interval)) + "'");
+                        }
+                    }
+                    return execute(statements);
+                });
+    }
+
+    private Uni<Void> execute(List<String> statements) {
+        return Multi.createFrom().iterable(statements)
+                .onItem().transformToUniAndConcatenate(sql -> client.query(sql).execute()
+                        .onFailure().invoke(failure -> LOG.warn("Partition statement failed: " + sql + ": " + failure.getMessage()))
+                        .onFailure().recoverWithNull())
+                .collect().last()
+                .replaceWithVoid();
+    }
+
+    // Names have minute resolution, so interval is expected in whole minutes
+    static LocalDateTime floor(LocalDateTime time, Duration interval) {
+        long step = interval.toSeconds();
+        long seconds = time.toEpochSecond(ZoneOffset.UTC);
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(seconds, step) * step, 0, ZoneOffset.UTC);
+    }
+
+    static String partitionName(LocalDateTime start) {
+        return PARTITION_PREFIX + NAME_FORMAT.format(start);
+    }
+
+    // Null for the default partition and anything else not created here
+    static LocalDateTime partitionStart(String name) {
+        if (!name.startsWith(PARTITION_PREFIX)) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(name.substring(PARTITION_PREFIX.length()), NAME_FORMAT);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package br.com.ggcrispim.model;
+
+import br.com.ggcrispim.dto.PaymentRequest;
+import br.com.ggcrispim.service.PaymentAggregateIndex;
+import br.com.ggcrispim.service.ProcessorHealthMonitor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.Pool;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains {@code payment_summary_staging} into {@code payment_summary} when
+ * {@code payment.persist.mode=staging}. Each merge moves up to {@code merge-batch-size}
+ * rows in one statement; a full batch is followed by another straight away, so a backlog
+ * drains within one tick. Duplicates are dropped by the insert's claim on
+ * {@code payment_ids}, and only the rows that were new are added to the Redis aggregates
+ * and the {@link PaymentAggregateIndex}, which the consumers cannot feed in this mode.
+ *
+ * <p>Runs on the health-poll leader only, so the 0.15-CPU database merges once per tick
+ * for the whole cluster.
+ */
+@ApplicationScoped
+public class PaymentSummaryStagingMerger {
+
+    private static final Logger LOG = Logger.getLogger(PaymentSummaryStagingMerger.class);
+
+    @ConfigProperty(name = "payment.persist.merge-batch-size", defaultValue = "5000")
+    int mergeBatchSize;
+
+    @Inject
+    Pool client;
+
+    @Inject
+    PaymentSummaryBatchWriter paymentSummaryBatchWriter;
+
+    @Inject
+    PaymentAggregateStore paymentAggregateStore;
+
+    @Inject
+    PaymentAggregateIndex paymentAggregateIndex;
+
+    @Inject
+    ProcessorHealthMonitor processorHealthMonitor;
+
+    @Inject
+    MeterRegistry registry;
+
+    private Timer mergeTimer;
+
+    @PostConstruct
+    void registerMetrics() {
+        mergeTimer = Timer.builder("payments.persist.merge")
+                .description("Time to merge one batch of staged payment summaries")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(5))
+                .register(registry);
+    }
+
+    @Scheduled(every = "${payment.persist.merge-interval:100ms}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    public Uni<Void> merge() {
+        if (!paymentSummaryBatchWriter.isStaging() || !processorHealthMonitor.isLeader()) {
+            return Uni.createFrom().voidItem();
+        }
+        return mergeBatch()
+                .onFailure().invoke(failure -> LOG.error("Failed to merge staged payment summaries", failure))
+                .onFailure().recoverWithNull()
+                .replaceWithVoid();
+    }
+
+    private Uni<Void> mergeBatch() {
+        long startNanos = System.nanoTime();
+        return PaymentSummaryModel.mergeStaged(client, mergeBatchSize)
+                .onItem().invoke(() -> mergeTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS))
+                .onItem().call(this::recordAggregates)
+                .onItem().transformToUni(merged -> {
+                    LOG.debug("Merged " + merged.size() + " staged payment summaries");
+                    // Duplicates make a full batch look short; what they leave behind waits for the next tick
+                    return merged.size() < mergeBatchSize ? Uni.createFrom().voidItem() : mergeBatch();
+                });
+    }
+
+    private Uni<Void> recordAggregates(List<PaymentRequest> merged) {
+        merged.forEach(paymentAggregateIndex::record);
+        return paymentAggregateStore.recordAll(merged)
+                .onFailure().invoke(failure ->
+                        LOG.error("Failed to update aggregates for " + merged.size() + " payments", failure))
+                .onFailure().recoverWithNull();
+    }
+}
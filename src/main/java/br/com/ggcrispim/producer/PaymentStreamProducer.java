@@ -1,44 +1,97 @@
 package br.com.ggcrispim.producer;
 
+import br.com.ggcrispim.batch.Coalescer;
+import br.com.ggcrispim.codec.PaymentStreamCodec;
 import br.com.ggcrispim.dto.PaymentRequest;
 import io.quarkus.redis.datasource.ReactiveRedisDataSource;
 import io.smallrye.mutiny.Uni;
-import io.vertx.core.json.JsonObject;
+import io.smallrye.mutiny.subscription.UniEmitter;
+import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.redis.client.Command;
+import io.vertx.mutiny.redis.client.Request;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
-import java.util.Map;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Appends payments to {@code payments:stream}. Concurrent enqueues are coalesced by a
+ * {@link Coalescer}: a batch is sent as one pipeline of XADDs when it reaches
+ * {@code batch-size} or when its first payment has waited {@code linger}, whichever comes
+ * first, so a burst of requests costs Redis one round trip instead of one per request.
+ * Each caller's {@link Uni} completes once the pipeline is answered. Payments are encoded
+ * before they join a batch, so one that cannot be encoded only fails its own caller.
+ */
 @ApplicationScoped
 public class PaymentStreamProducer {
 
     private static final Logger LOG = Logger.getLogger(PaymentStreamProducer.class);
     private static final String PAYMENT_STREAM = "payments:stream";
 
+    @ConfigProperty(name = "payment.stream.producer.batch-size", defaultValue = "64")
+    int batchSize;
+
+    @ConfigProperty(name = "payment.stream.producer.linger", defaultValue = "1ms")
+    Duration linger;
+
+    // Safety cap only: PaymentStreamTrimmer keeps the stream short by trimming acknowledged entries
+    @ConfigProperty(name = "payment.stream.max-length", defaultValue = "50000")
+    long maxLength;
+
     @Inject
     ReactiveRedisDataSource reactiveRedisClient;
 
+    @Inject
+    Vertx vertx;
+
+    private Coalescer<byte[], Void> coalescer;
+
+    @PostConstruct
+    void createCoalescer() {
+        coalescer = new Coalescer<>(vertx, batchSize, linger, this::flush);
+    }
+
+    /**
+     * Fails right away, without holding up the batch, when the payment cannot be encoded.
+     */
     public Uni<Void> addPaymentToStream(PaymentRequest paymentRequest) {
-        return addSinglePaymentToStream(paymentRequest)
-                .onItem().invoke(streamId ->
-                        LOG.debug("Added payment to stream with ID: " + streamId))
-                .replaceWithVoid();
+        byte[] entry;
+        try {
+            entry = PaymentStreamCodec.encode(paymentRequest);
+        } catch (RuntimeException e) {
+            return Uni.createFrom().failure(new IllegalArgumentException(
+                    "Cannot encode payment " + paymentRequest.getCorrelationId(), e));
+        }
+        return coalescer.submit(entry);
     }
 
-    private Uni<String> addSinglePaymentToStream(PaymentRequest paymentRequest) {
-        Map<String, String> fields = Map.of(
-                "correlationId", paymentRequest.getCorrelationId(),
-                "amount", String.valueOf(paymentRequest.getAmount()),
-                "requestedAt", paymentRequest.getRequestedAt().toString(),
-                "payload", JsonObject.mapFrom(paymentRequest).encode()
-        );
-
-        return reactiveRedisClient.stream(String.class)
-                .xadd(PAYMENT_STREAM, fields)
-                .onItem().invoke(streamId ->
-                        LOG.debug("Added payment to stream with ID: " + streamId))
-                .onFailure().invoke(failure ->
-                        LOG.error("Failed to add payment to stream: " + paymentRequest.getCorrelationId(), failure));
+    private void flush(List<byte[]> entries, List<UniEmitter<? super Void>> emitters) {
+        List<Request> commands = new ArrayList<>(entries.size());
+        for (byte[] entry : entries) {
+            commands.add(Request.cmd(Command.XADD)
+                    .arg(PAYMENT_STREAM)
+                    .arg("MAXLEN")
+                    .arg("~")
+                    .arg(maxLength)
+                    .arg("*")
+                    .arg(PaymentStreamCodec.FIELD)
+                    .arg(entry));
+        }
+
+        reactiveRedisClient.getRedis().batch(commands)
+                .subscribe().with(
+                        streamIds -> {
+                            LOG.debug("Added " + streamIds.size() + " payments to stream");
+                            emitters.forEach(emitter -> emitter.complete(null));
+                        },
+                        failure -> {
+                            LOG.error("Failed to add batch of " + entries.size() + " payments to stream", failure);
+                            emitters.forEach(emitter -> emitter.fail(failure));
+                        });
     }
-}
\ No newline at end of file
+}
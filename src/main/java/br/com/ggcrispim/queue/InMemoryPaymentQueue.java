@@ -0,0 +1,169 @@
+package br.com.ggcrispim.queue;
+
+import br.com.ggcrispim.dto.PaymentRequest;
+import io.quarkus.arc.properties.IfBuildProperty;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.UniEmitter;
+import io.vertx.core.Context;
+import io.vertx.mutiny.core.Vertx;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link PaymentQueue} kept in a bounded in-process {@link RingBuffer}, for single-node
+ * deployments and tests where a Redis hop per payment is pure overhead.
+ *
+ * <p>Lanes that find the buffer empty park as waiters instead of spinning; each
+ * enqueue wakes one of them on its own Vert.x context, so a lane keeps running on its
+ * event loop. Entries do not outlive the process, but a delivered entry stays tracked
+ * until it is acknowledged, so {@link #reclaim} hands back the ones a lane gave up on,
+ * as the pending entries list does for the Redis stream.
+ */
+@ApplicationScoped
+@IfBuildProperty(name = "payment.queue.backend", stringValue = "memory")
+public class InMemoryPaymentQueue implements PaymentQueue {
+
+    @ConfigProperty(name = "payment.queue.memory.capacity", defaultValue = "65536")
+    int capacity;
+
+    @ConfigProperty(name = "payment.stream.block-timeout", defaultValue = "2s")
+    Duration blockTimeout;
+
+    @Inject
+    Vertx vertx;
+
+    private RingBuffer<QueuedPayment> ringBuffer;
+    private final ConcurrentLinkedQueue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, Delivery> delivered = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        ringBuffer = new RingBuffer<>(capacity);
+    }
+
+    @Override
+    public Uni<Void> start() {
+        return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Uni<Void> enqueue(PaymentRequest paymentRequest) {
+        if (!ringBuffer.offer(new QueuedPayment(Long.toString(sequence.incrementAndGet()), paymentRequest))) {
+            return Uni.createFrom().failure(new IllegalStateException(
+                    "Payment queue is full (" + ringBuffer.capacity() + " entries)"));
+        }
+        wakeWaiter();
+        return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Uni<List<QueuedPayment>> poll(String consumerName, int maxItems) {
+        List<QueuedPayment> batch = drain(maxItems);
+        if (!batch.isEmpty()) {
+            return Uni.createFrom().item(batch);
+        }
+        Context context = vertx.getDelegate().getOrCreateContext();
+        return Uni.createFrom().emitter(emitter -> {
+            Waiter waiter = new Waiter(emitter, maxItems, context);
+            waiter.timerId = vertx.setTimer(blockTimeout.toMillis(), id -> {
+                if (waiter.claim()) {
+                    waiters.remove(waiter);
+                    emitter.complete(List.of());
+                }
+            });
+            waiters.add(waiter);
+            // An enqueue may have landed between the drain above and registering
+            if (ringBuffer.size() > 0) {
+                wakeWaiter();
+            }
+        });
+    }
+
+    @Override
+    public Uni<Void> ack(List<String> ids) {
+        for (String id : ids) {
+            delivered.remove(id);
+        }
+        return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Uni<List<QueuedPayment>> reclaim(String consumerName, Duration minIdle, int maxItems) {
+        long now = System.nanoTime();
+        long minIdleNanos = minIdle.toNanos();
+        List<QueuedPayment> claimed = new ArrayList<>();
+        for (Map.Entry<String, Delivery> entry : delivered.entrySet()) {
+            if (claimed.size() >= maxItems) {
+                break;
+            }
+            Delivery delivery = entry.getValue();
+            // Redelivering resets the idle time, so a concurrent reclaim cannot take it too
+            if (now - delivery.deliveredAtNanos() >= minIdleNanos
+                    && delivered.replace(entry.getKey(), delivery, new Delivery(delivery.payment(), now))) {
+                claimed.add(delivery.payment());
+            }
+        }
+        return Uni.createFrom().item(claimed);
+    }
+
+    @Override
+    public Uni<Long> pendingCount() {
+        return Uni.createFrom().item((long) delivered.size());
+    }
+
+    private List<QueuedPayment> drain(int maxItems) {
+        List<QueuedPayment> batch = new ArrayList<>(Math.min(maxItems, 64));
+        ringBuffer.drainTo(batch, maxItems);
+        long now = System.nanoTime();
+        for (QueuedPayment payment : batch) {
+            delivered.put(payment.id(), new Delivery(payment, now));
+        }
+        return batch;
+    }
+
+    private void wakeWaiter() {
+        Waiter waiter;
+        while ((waiter = waiters.poll()) != null) {
+            if (waiter.claim()) {
+                Waiter woken = waiter;
+                vertx.cancelTimer(woken.timerId);
+                // Drain on the waiter's own context; an empty batch just makes that lane poll again
+                woken.context.runOnContext(ignored -> woken.emitter.complete(drain(woken.maxItems)));
+                return;
+            }
+        }
+    }
+
+    private record Delivery(QueuedPayment payment, long deliveredAtNanos) {}
+
+    private static final class Waiter {
+
+        private final UniEmitter<? super List<QueuedPayment>> emitter;
+        private final int maxItems;
+        private final Context context;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private volatile long timerId = -1;
+
+        Waiter(UniEmitter<? super List<QueuedPayment>> emitter, int maxItems, Context context) {
+            this.emitter = emitter;
+            this.maxItems = maxItems;
+            this.context = context;
+        }
+
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+}
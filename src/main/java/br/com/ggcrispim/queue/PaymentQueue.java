@@ -0,0 +1,45 @@
+package br.com.ggcrispim.queue;
+
+import br.com.ggcrispim.dto.PaymentRequest;
+import io.smallrye.mutiny.Uni;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Where accepted payments wait until a consumer lane picks them up.
+ *
+ * <p>The backend is chosen at build time with {@code payment.queue.backend}:
+ * {@code redis} (default, {@link RedisStreamPaymentQueue}) shares the queue between
+ * replicas; {@code memory} ({@link InMemoryPaymentQueue}) keeps it in-process for
+ * single-node deployments and tests.
+ */
+public interface PaymentQueue {
+
+    /**
+     * Prepares the backend before the first poll.
+     */
+    Uni<Void> start();
+
+    Uni<Void> enqueue(PaymentRequest paymentRequest);
+
+    /**
+     * Returns up to {@code maxItems} payments for {@code consumerName}, waiting up to the
+     * backend's block timeout when the queue is empty. An empty list means the wait
+     * timed out.
+     */
+    Uni<List<QueuedPayment>> poll(String consumerName, int maxItems);
+
+    Uni<Void> ack(List<String> ids);
+
+    /**
+     * Takes over up to {@code maxItems} payments delivered to some consumer but not
+     * acknowledged for at least {@code minIdle}.
+     */
+    Uni<List<QueuedPayment>> reclaim(String consumerName, Duration minIdle, int maxItems);
+
+    /**
+     * Payments delivered but not yet acknowledged.
+     */
+    Uni<Long> pendingCount();
+}
@@ -0,0 +1,115 @@
+package br.com.ggcrispim.queue;
+
+import br.com.ggcrispim.redis.LuaScript;
+import br.com.ggcrispim.service.ProcessorHealthMonitor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.arc.properties.IfBuildProperty;
+import io.quarkus.redis.datasource.ReactiveRedisDataSource;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.redis.client.Response;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static br.com.ggcrispim.queue.RedisStreamPaymentQueue.PAYMENT_STREAM;
+
+/**
+ * Keeps {@code payments:stream} from growing without bound. Acknowledged entries are
+ * never read again, so everything older than the lowest entry some group still needs
+ * (its oldest pending entry, or its last delivered one when nothing is pending) is
+ * trimmed with {@code XTRIM MINID}. The producer's approximate {@code MAXLEN} is only a
+ * safety cap for when consumers fall far behind.
+ *
+ * <p>Runs on the health-poll leader only, so Redis does the work once per tick for the
+ * whole cluster; the same instance reports the stream's length, memory and consumer
+ * group lag (entries not yet delivered to any lane).
+ */
+@ApplicationScoped
+@IfBuildProperty(name = "payment.queue.backend", stringValue = "redis", enableIfMissing = true)
+public class PaymentStreamTrimmer {
+
+    private static final Logger LOG = Logger.getLogger(PaymentStreamTrimmer.class);
+
+    // Returns {trimmed entries, remaining length, undelivered entries}; stream ids compare as (millis, sequence)
+    private static final LuaScript TRIM_SCRIPT = new LuaScript("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                return {0, 0, 0}
+            end
+            local function parse(id)
+                local dash = string.find(id, '-', 1, true)
+                return tonumber(string.sub(id, 1, dash - 1)), tonumber(string.sub(id, dash + 1))
+            end
+            local function older(a, b)
+                local aMillis, aSeq = parse(a)
+                local bMillis, bSeq = parse(b)
+                return aMillis < bMillis or (aMillis == bMillis and aSeq < bSeq)
+            end
+            local minId = nil
+            local lag = 0
+            for _, group in ipairs(redis.call('XINFO', 'GROUPS', KEYS[1])) do
+                local fields = {}
+                for i = 1, #group, 2 do
+                    fields[group[i]] = group[i + 1]
+                end
+                -- lag is nil when Redis cannot compute it (e.g. after a trim past the group); count it as 0
+                if fields['lag'] then
+                    lag = math.max(lag, tonumber(fields['lag']))
+                end
+                local watermark = fields['last-delivered-id']
+                if tonumber(fields['pending']) > 0 then
+                    watermark = redis.call('XPENDING', KEYS[1], fields['name'])[2]
+                end
+                if minId == nil or older(watermark, minId) then
+                    minId = watermark
+                end
+            end
+            local trimmed = 0
+            if minId ~= nil then
+                trimmed = redis.call('XTRIM', KEYS[1], 'MINID', minId)
+            end
+            return {trimmed, redis.call('XLEN', KEYS[1]), lag}
+            """);
+
+    @Inject
+    ReactiveRedisDataSource reactiveRedisClient;
+
+    @Inject
+    ProcessorHealthMonitor processorHealthMonitor;
+
+    private final AtomicLong streamLength = new AtomicLong();
+    private final AtomicLong streamMemoryBytes = new AtomicLong();
+    private final AtomicLong streamLag = new AtomicLong();
+
+    @Inject
+    public PaymentStreamTrimmer(MeterRegistry registry) {
+        registry.gauge("payments.stream.length", streamLength);
+        registry.gauge("payments.stream.memory.bytes", streamMemoryBytes);
+        registry.gauge("payments.stream.lag", streamLag);
+    }
+
+    @Scheduled(every = "${payment.stream.trim.interval:1s}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    public Uni<Void> trim() {
+        if (!processorHealthMonitor.isLeader()) {
+            return Uni.createFrom().voidItem();
+        }
+        return TRIM_SCRIPT.execute(reactiveRedisClient, "1", PAYMENT_STREAM)
+                .onItem().invoke(this::recordTrim)
+                .onItem().transformToUni(ignored -> reactiveRedisClient.execute("MEMORY", "USAGE", PAYMENT_STREAM))
+                .onItem().invoke(usage -> streamMemoryBytes.set(usage == null ? 0 : usage.toLong()))
+                .onFailure().invoke(failure -> LOG.error("Failed to trim payment stream", failure))
+                .onFailure().recoverWithNull()
+                .replaceWithVoid();
+    }
+
+    private void recordTrim(Response result) {
+        long trimmed = result.get(0).toLong();
+        streamLength.set(result.get(1).toLong());
+        streamLag.set(result.get(2).toLong());
+        if (trimmed > 0) {
+            LOG.debug("Trimmed " + trimmed + " acknowledged entries from " + PAYMENT_STREAM);
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package br.com.ggcrispim.queue;
+
+import br.com.ggcrispim.dto.PaymentRequest;
+
+public record QueuedPayment(String id, PaymentRequest paymentRequest) {}
@@ -0,0 +1,150 @@
+package br.com.ggcrispim.queue;
+
+import br.com.ggcrispim.codec.PaymentStreamCodec;
+import br.com.ggcrispim.dto.PaymentRequest;
+import br.com.ggcrispim.producer.PaymentStreamProducer;
+import io.quarkus.arc.properties.IfBuildProperty;
+import io.quarkus.redis.datasource.ReactiveRedisDataSource;
+import io.quarkus.redis.datasource.stream.StreamMessage;
+import io.quarkus.redis.datasource.stream.XGroupCreateArgs;
+import io.quarkus.redis.datasource.stream.XReadGroupArgs;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link PaymentQueue} on the {@code payments:stream} Redis Stream, consumed through the
+ * {@code payment-processors} group so every replica shares the same queue.
+ */
+@ApplicationScoped
+@IfBuildProperty(name = "payment.queue.backend", stringValue = "redis", enableIfMissing = true)
+public class RedisStreamPaymentQueue implements PaymentQueue {
+
+    private static final Logger LOG = Logger.getLogger(RedisStreamPaymentQueue.class);
+    public static final String PAYMENT_STREAM = "payments:stream";
+    public static final String CONSUMER_GROUP = "payment-processors";
+    private static final String SCAN_START = "0-0";
+
+    @ConfigProperty(name = "payment.stream.block-timeout", defaultValue = "2s")
+    Duration blockTimeout;
+
+    @Inject
+    ReactiveRedisDataSource reactiveRedisClient;
+
+    @Inject
+    PaymentStreamProducer paymentStreamProducer;
+
+    // Reclaims run one at a time (scheduled with SKIP), volatile only for visibility across threads
+    private volatile String reclaimCursor = SCAN_START;
+
+    @Override
+    public Uni<Void> start() {
+        return ensureStreamAndGroupExist();
+    }
+
+    @Override
+    public Uni<Void> enqueue(PaymentRequest paymentRequest) {
+        return paymentStreamProducer.addPaymentToStream(paymentRequest);
+    }
+
+    @Override
+    public Uni<List<QueuedPayment>> poll(String consumerName, int maxItems) {
+        XReadGroupArgs args = new XReadGroupArgs()
+                .count(maxItems)
+                .block(blockTimeout);
+
+        return reactiveRedisClient.stream(byte[].class)
+                .xreadgroup(CONSUMER_GROUP, consumerName, PAYMENT_STREAM, ">", args)
+                .onItem().transformToUni(this::decodeMessages)
+                .onFailure(RedisStreamPaymentQueue::isMissingGroup).recoverWithUni(() ->
+                        // The stream key is gone (e.g. evicted), recreate it and read again next time
+                        ensureStreamAndGroupExist().replaceWith(List.of()));
+    }
+
+    @Override
+    public Uni<Void> ack(List<String> ids) {
+        if (ids.isEmpty()) {
+            return Uni.createFrom().voidItem();
+        }
+
+        return reactiveRedisClient.stream(byte[].class)
+                .xack(PAYMENT_STREAM, CONSUMER_GROUP, ids.toArray(new String[0]))
+                .onItem().invoke(count ->
+                        LOG.debug("Acknowledged " + count + " messages"))
+                .replaceWithVoid();
+    }
+
+    /**
+     * Each call resumes the XAUTOCLAIM scan where the previous one stopped, so pending
+     * entries that are not idle yet at the head of the PEL cannot hide the ones behind
+     * them; the scan starts over once Redis reports it reached the end.
+     */
+    @Override
+    public Uni<List<QueuedPayment>> reclaim(String consumerName, Duration minIdle, int maxItems) {
+        return reactiveRedisClient.stream(byte[].class)
+                .xautoclaim(PAYMENT_STREAM, CONSUMER_GROUP, consumerName, minIdle, reclaimCursor, maxItems)
+                .onItem().invoke(claimed -> reclaimCursor = claimed.getId() == null ? SCAN_START : claimed.getId())
+                .onItem().transformToUni(claimed -> decodeMessages(claimed.getMessages()));
+    }
+
+    @Override
+    public Uni<Long> pendingCount() {
+        return reactiveRedisClient.stream(byte[].class)
+                .xpending(PAYMENT_STREAM, CONSUMER_GROUP)
+                .onItem().transform(summary -> summary.getPendingCount());
+    }
+
+    private Uni<Void> ensureStreamAndGroupExist() {
+        return reactiveRedisClient.stream(byte[].class)
+                .xgroupCreate(PAYMENT_STREAM, CONSUMER_GROUP, "0", new XGroupCreateArgs().mkstream())
+                .onFailure().recoverWithUni(ignored -> Uni.createFrom().voidItem())
+                .replaceWithVoid();
+    }
+
+    /**
+     * Decodes stream entries, acknowledging right away the ones that can never be
+     * processed: "init" markers and entries that do not decode.
+     */
+    private Uni<List<QueuedPayment>> decodeMessages(List<StreamMessage<String, String, byte[]>> messages) {
+        if (messages == null || messages.isEmpty()) {
+            return Uni.createFrom().item(List.of());
+        }
+
+        List<String> discardedIds = new ArrayList<>();
+        List<QueuedPayment> payments = decode(messages, discardedIds);
+
+        if (!discardedIds.isEmpty()) {
+            return ack(discardedIds).replaceWith(payments);
+        }
+
+        return Uni.createFrom().item(payments);
+    }
+
+    static List<QueuedPayment> decode(List<StreamMessage<String, String, byte[]>> messages, List<String> discardedIds) {
+        List<QueuedPayment> payments = new ArrayList<>(messages.size());
+        for (StreamMessage<String, String, byte[]> message : messages) {
+            if (message.payload().containsKey("init")) {
+                discardedIds.add(message.id());
+                continue;
+            }
+            try {
+                payments.add(new QueuedPayment(message.id(),
+                        PaymentStreamCodec.decode(message.payload().get(PaymentStreamCodec.FIELD))));
+            } catch (RuntimeException e) {
+                LOG.error("Dropping invalid stream message: " + message.id(), e);
+                discardedIds.add(message.id());
+            }
+        }
+        return payments;
+    }
+
+    private static boolean isMissingGroup(Throwable failure) {
+        return failure.getMessage() != null && failure.getMessage().contains("NOGROUP");
+    }
+}
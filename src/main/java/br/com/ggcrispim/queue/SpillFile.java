@@ -0,0 +1,154 @@
+package br.com.ggcrispim.queue;
+
+import br.com.ggcrispim.codec.PaymentStreamCodec;
+import br.com.ggcrispim.dto.PaymentRequest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only overflow file of fixed-size {@link PaymentStreamCodec} records. Payments
+ * are read back in the order they were written and the file is truncated once fully
+ * read, so it only grows while the queue is behind. Records left by a previous run are
+ * replayed first.
+ *
+ * <p>{@link #read} does not consume: it returns the same records until the caller
+ * {@link #commit}s them once they are safely enqueued, so a crash or a failed enqueue
+ * replays them instead of losing them. There must be a single reader. Every method but
+ * {@link #pending} does file IO and must run off the event loop.
+ *
+ * <p>Both survive a crash: {@link #append} forces the records to disk before returning,
+ * and each commit forces the read offset into a side file, {@code <path>.offset}, so a
+ * restart replays only what was not committed yet.
+ */
+final class SpillFile {
+
+    private final FileChannel channel;
+    private final FileChannel offsetChannel;
+    private final ByteBuffer offsetBuffer = ByteBuffer.allocate(Long.BYTES);
+    private long readPosition;
+    private long writePosition;
+    // Kept apart so pending() can be asked on the event loop without waiting for a write
+    private final AtomicLong pendingRecords = new AtomicLong();
+
+    SpillFile(Path path) {
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            this.channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.offsetChannel = FileChannel.open(path.resolveSibling(path.getFileName() + ".offset"),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            // A torn record from a crash mid-write is dropped
+            this.writePosition = channel.size() - channel.size() % PaymentStreamCodec.SIZE;
+            this.readPosition = Math.min(writePosition, readOffset());
+            this.pendingRecords.set((writePosition - readPosition) / PaymentStreamCodec.SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open spill file " + path, e);
+        }
+    }
+
+    /**
+     * Appends the payments and forces them to disk, so a caller can acknowledge them once
+     * this returns.
+     */
+    synchronized void append(List<PaymentRequest> paymentRequests) {
+        ByteBuffer records = ByteBuffer.allocate(paymentRequests.size() * PaymentStreamCodec.SIZE);
+        for (PaymentRequest paymentRequest : paymentRequests) {
+            PaymentStreamCodec.encode(paymentRequest, records);
+        }
+        records.flip();
+        try {
+            while (records.hasRemaining()) {
+                writePosition += channel.write(records, writePosition);
+            }
+            channel.force(false);
+            pendingRecords.addAndGet(paymentRequests.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot spill " + paymentRequests.size() + " payments", e);
+        }
+    }
+
+    /**
+     * @return up to {@code maxRecords} of the oldest records not yet committed
+     */
+    synchronized List<PaymentRequest> read(int maxRecords) {
+        int records = (int) Math.min(maxRecords, (writePosition - readPosition) / PaymentStreamCodec.SIZE);
+        if (records == 0) {
+            return List.of();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(records * PaymentStreamCodec.SIZE);
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, readPosition + buffer.position()) < 0) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read spilled payments", e);
+        }
+        buffer.flip();
+        List<PaymentRequest> payments = new ArrayList<>(records);
+        while (buffer.remaining() >= PaymentStreamCodec.SIZE) {
+            payments.add(PaymentStreamCodec.decode(buffer));
+        }
+        return payments;
+    }
+
+    /**
+     * Consumes the first {@code records} records, as returned by the last {@link #read}.
+     */
+    synchronized void commit(int records) {
+        readPosition = Math.min(writePosition, readPosition + (long) records * PaymentStreamCodec.SIZE);
+        pendingRecords.set((writePosition - readPosition) / PaymentStreamCodec.SIZE);
+        if (readPosition == writePosition) {
+            // Offset first: a crash before the truncate then replays committed records, never skips new ones
+            writeOffset(0);
+            try {
+                channel.truncate(0);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot truncate spill file", e);
+            }
+            readPosition = 0;
+            writePosition = 0;
+        } else {
+            writeOffset(readPosition);
+        }
+    }
+
+    long pending() {
+        return pendingRecords.get();
+    }
+
+    private long readOffset() throws IOException {
+        offsetBuffer.clear();
+        while (offsetBuffer.hasRemaining()) {
+            if (offsetChannel.read(offsetBuffer, offsetBuffer.position()) < 0) {
+                return 0;
+            }
+        }
+        long offset = offsetBuffer.flip().getLong();
+        return Math.max(0, offset - offset % PaymentStreamCodec.SIZE);
+    }
+
+    private void writeOffset(long offset) {
+        offsetBuffer.clear().putLong(offset).flip();
+        try {
+            while (offsetBuffer.hasRemaining()) {
+                offsetChannel.write(offsetBuffer, offsetBuffer.position());
+            }
+            offsetChannel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot record spill file offset", e);
+        }
+    }
+}
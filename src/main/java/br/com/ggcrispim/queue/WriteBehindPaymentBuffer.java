@@ -0,0 +1,273 @@
+package br.com.ggcrispim.queue;
+
+import br.com.ggcrispim.batch.Coalescer;
+import br.com.ggcrispim.dto.PaymentRequest;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.UniEmitter;
+import io.vertx.mutiny.core.Vertx;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.ServiceUnavailableException;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fast-ack ingest: when {@code payment.ingest.write-behind} is on, a payment is accepted
+ * as soon as it is in a bounded in-process {@link RingBuffer}, and a background flusher
+ * moves it to the {@link PaymentQueue} in batches. A Redis stall then delays the flusher,
+ * not the HTTP response.
+ *
+ * <p>When the buffer is full, {@code payment.ingest.overflow} decides: {@code block}
+ * parks the request until the flusher frees room (503 after {@code block-timeout}),
+ * {@code reject} answers 503 right away, and {@code spill} appends the payment to a
+ * local {@link SpillFile} that is drained once the buffer empties. Spill file IO runs on
+ * a worker thread, never on the event loop; concurrent spills are coalesced so each batch
+ * costs a single write and fsync before its requests are answered.
+ */
+@ApplicationScoped
+public class WriteBehindPaymentBuffer {
+
+    private static final Logger LOG = Logger.getLogger(WriteBehindPaymentBuffer.class);
+
+    public enum OverflowPolicy {
+        BLOCK, REJECT, SPILL
+    }
+
+    @ConfigProperty(name = "payment.ingest.write-behind", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "payment.ingest.buffer-capacity", defaultValue = "16384")
+    int capacity;
+
+    @ConfigProperty(name = "payment.ingest.flush-batch-size", defaultValue = "256")
+    int flushBatchSize;
+
+    @ConfigProperty(name = "payment.ingest.flush-interval", defaultValue = "1ms")
+    Duration flushInterval;
+
+    @ConfigProperty(name = "payment.ingest.overflow", defaultValue = "reject")
+    OverflowPolicy overflowPolicy;
+
+    @ConfigProperty(name = "payment.ingest.block-timeout", defaultValue = "1s")
+    Duration blockTimeout;
+
+    @ConfigProperty(name = "payment.ingest.spill-path", defaultValue = "/tmp/payments-spill.bin")
+    String spillPath;
+
+    @Inject
+    PaymentQueue paymentQueue;
+
+    @Inject
+    Vertx vertx;
+
+    private RingBuffer<PaymentRequest> ringBuffer;
+    private SpillFile spillFile;
+    private Coalescer<PaymentRequest, Void> spillCoalescer;
+    // Payments whose enqueue failed go back ahead of the buffer so none is dropped
+    private final ConcurrentLinkedQueue<PaymentRequest> redeliveries = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Parked> parked = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushing = new AtomicBoolean(false);
+    private long timerId = -1;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            return;
+        }
+        ringBuffer = new RingBuffer<>(capacity);
+        if (overflowPolicy == OverflowPolicy.SPILL) {
+            spillFile = new SpillFile(Path.of(spillPath));
+            spillCoalescer = new Coalescer<>(vertx, flushBatchSize, flushInterval, this::spill);
+            if (spillFile.pending() > 0) {
+                LOG.warn("Replaying " + spillFile.pending() + " payments spilled by a previous run");
+            }
+        }
+        timerId = vertx.setPeriodic(Math.max(1, flushInterval.toMillis()), id -> flush());
+        LOG.info("Write-behind ingest enabled (capacity " + ringBuffer.capacity() + ", overflow " + overflowPolicy + ")");
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (timerId != -1) {
+            vertx.cancelTimer(timerId);
+        }
+        if (ringBuffer == null) {
+            return;
+        }
+        List<PaymentRequest> unflushed = new ArrayList<>(redeliveries);
+        ringBuffer.drainTo(unflushed, Integer.MAX_VALUE);
+        if (unflushed.isEmpty()) {
+            return;
+        }
+        if (spillFile != null) {
+            spillFile.append(unflushed);
+            LOG.info("Spilled " + unflushed.size() + " unflushed payments for the next run");
+        } else {
+            LOG.error("Shutting down with " + unflushed.size() + " accepted payments not yet enqueued");
+        }
+    }
+
+    /**
+     * Accepts a payment for asynchronous enqueueing.
+     *
+     * @return a {@link Uni} that completes once the payment is buffered (or spilled), or
+     * fails with {@link ServiceUnavailableException} when the overflow policy sheds it
+     */
+    public Uni<Void> accept(PaymentRequest paymentRequest) {
+        // Spilled payments keep their place: nothing may overtake them through the buffer
+        boolean spilling = spillFile != null && spillFile.pending() > 0;
+        if (!spilling && ringBuffer.offer(paymentRequest)) {
+            return Uni.createFrom().voidItem();
+        }
+        return switch (overflowPolicy) {
+            case SPILL -> spillCoalescer.submit(paymentRequest);
+            case BLOCK -> park(paymentRequest);
+            case REJECT -> Uni.createFrom().failure(new ServiceUnavailableException("Payment buffer is full"));
+        };
+    }
+
+    private void spill(List<PaymentRequest> payments, List<UniEmitter<? super Void>> emitters) {
+        vertx.executeBlocking(Uni.createFrom().item(() -> {
+                    spillFile.append(payments);
+                    return null;
+                }))
+                .subscribe().with(
+                        ignored -> emitters.forEach(emitter -> emitter.complete(null)),
+                        failure -> {
+                            LOG.error("Failed to spill " + payments.size() + " payments", failure);
+                            emitters.forEach(emitter -> emitter.fail(failure));
+                        });
+    }
+
+    private Uni<Void> park(PaymentRequest paymentRequest) {
+        return Uni.createFrom().emitter(emitter -> {
+            Parked waiting = new Parked(paymentRequest, emitter);
+            waiting.timerId = vertx.setTimer(Math.max(1, blockTimeout.toMillis()), id -> {
+                if (waiting.claim()) {
+                    parked.remove(waiting);
+                    emitter.fail(new ServiceUnavailableException("Payment buffer is full"));
+                }
+            });
+            parked.add(waiting);
+        });
+    }
+
+    private void flush() {
+        if (!flushing.compareAndSet(false, true)) {
+            return;
+        }
+        List<PaymentRequest> batch = nextBatch();
+        int room = flushBatchSize - batch.size();
+        if (room > 0 && spillFile != null && ringBuffer.size() == 0 && spillFile.pending() > 0) {
+            vertx.executeBlocking(Uni.createFrom().item(() -> spillFile.read(room)))
+                    .subscribe().with(
+                            spilled -> enqueue(batch, spilled),
+                            failure -> {
+                                LOG.error("Failed to read spilled payments", failure);
+                                enqueue(batch, List.of());
+                            });
+            return;
+        }
+        enqueue(batch, List.of());
+    }
+
+    /**
+     * Enqueues buffered payments, which go back to {@code redeliveries} when that fails,
+     * and spilled ones, which are only committed out of the spill file once all of them
+     * were enqueued and are otherwise read again by the next flush.
+     */
+    private void enqueue(List<PaymentRequest> batch, List<PaymentRequest> spilled) {
+        if (batch.isEmpty() && spilled.isEmpty()) {
+            flushing.set(false);
+            return;
+        }
+        AtomicBoolean spillFailed = new AtomicBoolean();
+        Multi<Void> buffered = Multi.createFrom().iterable(batch)
+                .onItem().transformToUniAndMerge(payment -> paymentQueue.enqueue(payment)
+                        .onFailure().invoke(failure -> redeliveries.add(payment))
+                        .onFailure().recoverWithNull());
+        Multi<Void> replayed = Multi.createFrom().iterable(spilled)
+                .onItem().transformToUniAndMerge(payment -> paymentQueue.enqueue(payment)
+                        .onFailure().invoke(failure -> spillFailed.set(true))
+                        .onFailure().recoverWithNull());
+
+        Multi.createBy().merging().streams(buffered, replayed)
+                .collect().last()
+                .onItem().call(ignored -> spilled.isEmpty() || spillFailed.get()
+                        ? Uni.createFrom().voidItem()
+                        : vertx.executeBlocking(Uni.createFrom().item(() -> {
+                            spillFile.commit(spilled.size());
+                            return null;
+                        })))
+                .onTermination().invoke(() -> {
+                    flushing.set(false);
+                    admitParked();
+                })
+                .subscribe().with(
+                        ignored -> {
+                            // A full batch means more is waiting; keep draining unless the queue is failing
+                            if (batch.size() + spilled.size() == flushBatchSize && redeliveries.isEmpty() && !spillFailed.get()) {
+                                flush();
+                            }
+                        },
+                        failure -> LOG.error("Failed to flush buffered payments", failure));
+    }
+
+    private List<PaymentRequest> nextBatch() {
+        List<PaymentRequest> batch = new ArrayList<>(flushBatchSize);
+        PaymentRequest redelivery;
+        while (batch.size() < flushBatchSize && (redelivery = redeliveries.poll()) != null) {
+            batch.add(redelivery);
+        }
+        ringBuffer.drainTo(batch, flushBatchSize - batch.size());
+        return batch;
+    }
+
+    private void admitParked() {
+        Parked waiting;
+        while ((waiting = parked.peek()) != null) {
+            if (!waiting.claim()) {
+                parked.remove(waiting);
+                continue;
+            }
+            if (!ringBuffer.offer(waiting.paymentRequest)) {
+                // Still full: release the claim and wait for the next flush
+                waiting.claimed.set(false);
+                return;
+            }
+            parked.remove(waiting);
+            vertx.cancelTimer(waiting.timerId);
+            waiting.emitter.complete(null);
+        }
+    }
+
+    private static final class Parked {
+
+        private final PaymentRequest paymentRequest;
+        private final UniEmitter<? super Void> emitter;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private volatile long timerId = -1;
+
+        Parked(PaymentRequest paymentRequest, UniEmitter<? super Void> emitter) {
+            this.paymentRequest = paymentRequest;
+            this.emitter = emitter;
+        }
+
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package br.com.ggcrispim.redis;
+
+import io.quarkus.redis.datasource.ReactiveRedisDataSource;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.redis.client.Response;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * A Lua script run with {@code EVALSHA}, so each call sends its 40-character digest
+ * instead of the whole source. When Redis does not know the script (first call, or
+ * after a restart flushed the script cache) it answers {@code NOSCRIPT}; the script is
+ * then loaded with {@code SCRIPT LOAD} and the call repeated once.
+ */
+public final class LuaScript {
+
+    private final String source;
+    private final String sha;
+
+    public LuaScript(String source) {
+        this.source = source;
+        this.sha = sha1(source);
+    }
+
+    /**
+     * @param keysAndArgs the key count, the keys and then the arguments, as for {@code EVAL}
+     */
+    public Uni<Response> execute(ReactiveRedisDataSource redis, String... keysAndArgs) {
+        String[] args = new String[keysAndArgs.length + 1];
+        args[0] = sha;
+        System.arraycopy(keysAndArgs, 0, args, 1, keysAndArgs.length);
+        return redis.execute("EVALSHA", args)
+                .onFailure(LuaScript::isNoScript).recoverWithUni(() -> redis.execute("SCRIPT", "LOAD", source)
+                        .onItem().transformToUni(ignored -> redis.execute("EVALSHA", args)));
+    }
+
+    String sha() {
+        return sha;
+    }
+
+    static boolean isNoScript(Throwable failure) {
+        return failure.getMessage() != null && failure.getMessage().contains("NOSCRIPT");
+    }
+
+    private static String sha1(String source) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            return HexFormat.of().formatHex(digest.digest(source.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+    }
+}
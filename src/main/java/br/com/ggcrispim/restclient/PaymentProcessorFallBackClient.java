@@ -1,7 +1,9 @@
 package br.com.ggcrispim.restclient;
 
+import br.com.ggcrispim.dto.PaymentProcessorState;
 import br.com.ggcrispim.dto.PaymentRequest;
 import io.smallrye.mutiny.Uni;
+import jakarta.ws.rs.GET;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.core.Response;
@@ -15,4 +17,8 @@ public interface PaymentProcessorFallBackClient {
     @Path("/payments")
     Uni<Response> processPayment(PaymentRequest paymentRequest);
 
+    @GET
+    @Path("/payments/service-health")
+    Uni<PaymentProcessorState> serviceHealth();
+
 }
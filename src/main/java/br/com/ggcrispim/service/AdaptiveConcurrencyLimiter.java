@@ -0,0 +1,160 @@
+package br.com.ggcrispim.service;
+
+import br.com.ggcrispim.model.PaymentStrategy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.UniEmitter;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Caps in-flight processor calls across every consumer lane with a limit that follows
+ * the processors instead of a fixed constant (AIMD on latency and errors).
+ *
+ * <p>Each completed call is a sample. The limit grows by about one per limit-worth of
+ * fast, successful calls, and is multiplied by {@code backoff-ratio} when a call fails
+ * or takes more than {@code latency-tolerance} times the baseline of the processor that
+ * served it: the lowest latency seen from that {@link PaymentStrategy}, slowly drifting
+ * up so a processor that got slower for good is re-learned. The limit backs off at most
+ * once per round trip: calls that started before the last decrease ran under the old
+ * limit and say nothing about the new one, so a burst of slow calls counts once.
+ * Calls over the limit wait for a permit on their own Vert.x context.
+ */
+@ApplicationScoped
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double BASELINE_DRIFT = 0.005;
+
+    private final double minLimit;
+    private final double maxLimit;
+    private final double backoffRatio;
+    private final double latencyTolerance;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ConcurrentLinkedQueue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private volatile double limit;
+    // Guarded by onSample's lock
+    private final double[] baselineNanos = new double[PaymentStrategy.values().length];
+    // Every call starts after construction, so the first slow sample may always back off
+    private long lastDecreaseNanos = System.nanoTime();
+
+    @Inject
+    public AdaptiveConcurrencyLimiter(
+            MeterRegistry registry,
+            @ConfigProperty(name = "payment.limiter.initial-limit", defaultValue = "25") int initialLimit,
+            @ConfigProperty(name = "payment.limiter.min-limit", defaultValue = "4") int minLimit,
+            @ConfigProperty(name = "payment.limiter.max-limit", defaultValue = "128") int maxLimit,
+            @ConfigProperty(name = "payment.limiter.backoff-ratio", defaultValue = "0.9") double backoffRatio,
+            @ConfigProperty(name = "payment.limiter.latency-tolerance", defaultValue = "2.0") double latencyTolerance) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.backoffRatio = backoffRatio;
+        this.latencyTolerance = latencyTolerance;
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+
+        registry.gauge("payments.processor.concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit);
+        registry.gauge("payments.processor.concurrency.inflight", inFlight);
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Runs {@code call} once a permit is free; the permit is returned when it terminates.
+     * Failures matching {@code isDrop} shrink the limit, other failures are not sampled.
+     * {@code strategy} is asked once the call terminates for the processor that served
+     * it; calls it answers {@code null} for are not sampled.
+     */
+    public <T> Uni<T> run(Supplier<Uni<T>> call, Predicate<Throwable> isDrop, Supplier<PaymentStrategy> strategy) {
+        return acquire().onItem().transformToUni(startNanos -> call.get()
+                .onItem().invoke(() -> onSample(strategy.get(), startNanos, System.nanoTime(), false))
+                .onFailure(isDrop).invoke(() -> onSample(strategy.get(), startNanos, System.nanoTime(), true))
+                .onTermination().invoke(this::release));
+    }
+
+    private Uni<Long> acquire() {
+        if (tryAcquire()) {
+            return Uni.createFrom().item(System.nanoTime());
+        }
+        Context context = Vertx.currentContext();
+        return Uni.createFrom().emitter(emitter -> {
+            waiters.add(new Waiter(emitter, context));
+            // A permit may have been released between the failed attempt and registering
+            grantWaiters();
+        });
+    }
+
+    private boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void release() {
+        inFlight.decrementAndGet();
+        grantWaiters();
+    }
+
+    private void grantWaiters() {
+        while (!waiters.isEmpty() && tryAcquire()) {
+            Waiter waiter = waiters.poll();
+            if (waiter == null) {
+                inFlight.decrementAndGet();
+                return;
+            }
+            waiter.grant(System.nanoTime());
+        }
+    }
+
+    synchronized void onSample(PaymentStrategy strategy, long startNanos, long endNanos, boolean dropped) {
+        if (strategy == null) {
+            return;
+        }
+        long latencyNanos = endNanos - startNanos;
+        int index = strategy.ordinal();
+        double baseline = baselineNanos[index];
+        if (baseline == 0 || latencyNanos < baseline) {
+            baseline = latencyNanos;
+        } else {
+            baseline += (latencyNanos - baseline) * BASELINE_DRIFT;
+        }
+        baselineNanos[index] = baseline;
+
+        double current = limit;
+        if (dropped || latencyNanos > baseline * latencyTolerance) {
+            if (startNanos - lastDecreaseNanos > 0) {
+                limit = Math.max(minLimit, current * backoffRatio);
+                lastDecreaseNanos = endNanos;
+            }
+        } else if (inFlight.get() >= current / 2) {
+            // Only grow while the limit is actually being used
+            limit = Math.min(maxLimit, current + 1 / current);
+        }
+    }
+
+    private record Waiter(UniEmitter<? super Long> emitter, Context context) {
+
+        void grant(long startNanos) {
+            if (context == null) {
+                emitter.complete(startNanos);
+            } else {
+                context.runOnContext(ignored -> emitter.complete(startNanos));
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package br.com.ggcrispim.service;
+
+import br.com.ggcrispim.dto.PaymentRequest;
+import br.com.ggcrispim.dto.PaymentSummary;
+import br.com.ggcrispim.dto.Summary;
+import br.com.ggcrispim.model.PaymentStrategy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * In-process count/amount index over fixed-width time buckets, per {@link PaymentStrategy}.
+ *
+ * <p>Time is cut into segments of {@code buckets / segments} buckets, held in a ring of
+ * {@code segments} slots, so the index always covers the most recent
+ * {@code buckets * bucket-width} and rolls forward as time does. Within a segment buckets
+ * are Fenwick trees over {@link AtomicLongArray}s, so recording a payment is O(log n)
+ * lock-free adds and a range query is two prefix sums per segment it touches. Ranges are
+ * resolved at bucket granularity; amounts are kept in cents.
+ *
+ * <p>A segment is recycled whole once time moves a ring's length past it. Payments of a
+ * recycled segment are gone from the index, so {@link #summarize} returns {@code null} for
+ * any range reaching into one and the caller answers from the database instead.
+ *
+ * <p>Only payments processed by this instance are seen, so on its own it is only
+ * complete for single-instance deployments.
+ */
+@ApplicationScoped
+public class PaymentAggregateIndex {
+
+    private final long bucketWidthMillis;
+    private final int segmentBuckets;
+    private final AtomicReferenceArray<Segment> ring;
+    // Highest segment that lost payments, by recycling or by a payment older than its slot
+    private final AtomicLong evictedThrough = new AtomicLong(Long.MIN_VALUE);
+
+    @Inject
+    public PaymentAggregateIndex(
+            @ConfigProperty(name = "payment.summary.memory.bucket-width", defaultValue = "10ms") Duration bucketWidth,
+            @ConfigProperty(name = "payment.summary.memory.buckets", defaultValue = "65536") int buckets,
+            @ConfigProperty(name = "payment.summary.memory.segments", defaultValue = "8") int segments) {
+        this.bucketWidthMillis = Math.max(1, bucketWidth.toMillis());
+        int ringSize = Math.max(2, segments);
+        this.segmentBuckets = Math.max(1, buckets / ringSize);
+        this.ring = new AtomicReferenceArray<>(ringSize);
+    }
+
+    public void record(PaymentRequest paymentRequest) {
+        record(paymentRequest.getPaymentStrategy(), epochMillis(paymentRequest.getRequestedAt()),
+                Math.round(paymentRequest.getAmount() * 100));
+    }
+
+    public void record(PaymentStrategy strategy, long requestedAtMillis, long amountCents) {
+        long bucket = Math.floorDiv(requestedAtMillis, bucketWidthMillis);
+        Segment segment = segmentFor(Math.floorDiv(bucket, segmentBuckets));
+        if (segment != null) {
+            segment.add(strategy, (int) Math.floorMod(bucket, segmentBuckets), amountCents);
+        }
+    }
+
+    /**
+     * @return the totals of {@code [from, to]}, or {@code null} when part of that range
+     * is no longer, or cannot be, held in the ring
+     */
+    public PaymentSummary summarize(LocalDateTime from, LocalDateTime to) {
+        long firstBucket = Math.floorDiv(epochMillis(from), bucketWidthMillis);
+        long lastBucket = Math.floorDiv(epochMillis(to), bucketWidthMillis);
+        if (lastBucket < firstBucket) {
+            return new PaymentSummary(new Summary(0, 0), new Summary(0, 0));
+        }
+        long firstSegment = Math.floorDiv(firstBucket, segmentBuckets);
+        long lastSegment = Math.floorDiv(lastBucket, segmentBuckets);
+        if (lastSegment - firstSegment >= ring.length() || firstSegment <= evictedThrough.get()) {
+            return null;
+        }
+
+        long[] counts = new long[PaymentStrategy.values().length];
+        long[] cents = new long[counts.length];
+        for (long index = firstSegment; index <= lastSegment; index++) {
+            Segment segment = ring.get(slotOf(index));
+            if (segment == null || segment.index < index) {
+                // Nothing recorded there yet
+                continue;
+            }
+            if (segment.index > index) {
+                // Recycled while this query ran
+                return null;
+            }
+            int first = index == firstSegment ? (int) Math.floorMod(firstBucket, segmentBuckets) : 0;
+            int last = index == lastSegment ? (int) Math.floorMod(lastBucket, segmentBuckets) : segmentBuckets - 1;
+            segment.sum(first, last, counts, cents);
+        }
+        return new PaymentSummary(
+                new Summary((int) counts[PaymentStrategy.DEFAULT.ordinal()], cents[PaymentStrategy.DEFAULT.ordinal()] / 100.0),
+                new Summary((int) counts[PaymentStrategy.FALLBACK.ordinal()], cents[PaymentStrategy.FALLBACK.ordinal()] / 100.0));
+    }
+
+    // Null when the slot already holds a newer segment, i.e. the payment is older than the ring
+    private Segment segmentFor(long index) {
+        int slot = slotOf(index);
+        while (true) {
+            Segment current = ring.get(slot);
+            if (current != null && current.index == index) {
+                return current;
+            }
+            if (current != null && current.index > index) {
+                evict(index);
+                return null;
+            }
+            Segment fresh = new Segment(index, segmentBuckets);
+            if (ring.compareAndSet(slot, current, fresh)) {
+                if (current != null) {
+                    evict(current.index);
+                }
+                return fresh;
+            }
+        }
+    }
+
+    private void evict(long index) {
+        evictedThrough.accumulateAndGet(index, Math::max);
+    }
+
+    private int slotOf(long index) {
+        return (int) Math.floorMod(index, ring.length());
+    }
+
+    static long epochMillis(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1000 + dateTime.getNano() / 1_000_000;
+    }
+
+    private static final class Segment {
+
+        final long index;
+        private final int buckets;
+        private final AtomicLongArray[] counts;
+        private final AtomicLongArray[] amounts;
+
+        Segment(long index, int buckets) {
+            this.index = index;
+            this.buckets = buckets;
+            int strategies = PaymentStrategy.values().length;
+            this.counts = new AtomicLongArray[strategies];
+            this.amounts = new AtomicLongArray[strategies];
+            for (int i = 0; i < strategies; i++) {
+                counts[i] = new AtomicLongArray(buckets + 1);
+                amounts[i] = new AtomicLongArray(buckets + 1);
+            }
+        }
+
+        void add(PaymentStrategy strategy, int bucket, long amountCents) {
+            AtomicLongArray countTree = counts[strategy.ordinal()];
+            AtomicLongArray amountTree = amounts[strategy.ordinal()];
+            for (int i = bucket + 1; i <= buckets; i += i & -i) {
+                countTree.getAndAdd(i, 1);
+                amountTree.getAndAdd(i, amountCents);
+            }
+        }
+
+        // Adds buckets [first, last] of every strategy into totals indexed by ordinal
+        void sum(int first, int last, long[] countTotals, long[] centTotals) {
+            for (int strategy = 0; strategy < counts.length; strategy++) {
+                countTotals[strategy] += prefixSum(counts[strategy], last) - prefixSum(counts[strategy], first - 1);
+                centTotals[strategy] += prefixSum(amounts[strategy], last) - prefixSum(amounts[strategy], first - 1);
+            }
+        }
+
+        // Sum of buckets [0, bucket]
+        private static long prefixSum(AtomicLongArray tree, int bucket) {
+            long sum = 0;
+            for (int i = bucket + 1; i > 0; i -= i & -i) {
+                sum += tree.get(i);
+            }
+            return sum;
+        }
+    }
+}
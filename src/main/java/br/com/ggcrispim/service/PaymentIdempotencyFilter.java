@@ -0,0 +1,205 @@
+package br.com.ggcrispim.service;
+
+import br.com.ggcrispim.dto.PaymentRequest;
+import br.com.ggcrispim.model.PaymentStrategy;
+import br.com.ggcrispim.redis.LuaScript;
+import io.quarkus.redis.datasource.ReactiveRedisDataSource;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Drops payments whose correlation id was already dispatched, before any processor
+ * call is paid for.
+ *
+ * <p>Ids this instance has claimed are kept in a fixed-size open-addressing table of
+ * {@code long} pairs; when a probe run is full one of its slots is overwritten in turn, so
+ * memory stays bounded and a forgotten id just falls through to Redis. Cluster-wide,
+ * {@code SET payments:seen:<id> c NX PX ttl} lets a single instance claim each id, and
+ * the value becomes {@code p<strategy ordinal>} once a processor took the payment.
+ * A redelivery of a stalled entry reads that state: a paid payment only needs its row,
+ * not a second processor call. A claim whose payment was rejected or given up on is
+ * released, so the client can send it again.
+ *
+ * <p>If Redis cannot answer, the payment is let through and the processor may be called
+ * twice. It answers the second call with 422, which is persisted like a success, and the
+ * insert skips a correlation id that already has a row.
+ */
+@ApplicationScoped
+public class PaymentIdempotencyFilter {
+
+    private static final Logger LOG = Logger.getLogger(PaymentIdempotencyFilter.class);
+    private static final String SEEN_KEY_PREFIX = "payments:seen:";
+    private static final String CLAIMED = "c";
+    private static final String PAID = "p";
+    private static final int PROBES = 4;
+
+    // Only drops a claim: a payment a processor took must stay marked
+    private static final LuaScript RELEASE_SCRIPT = new LuaScript("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """);
+
+    private final boolean enabled;
+    private final Duration ttl;
+    private final int mask;
+    private final long[] mostSignificant;
+    private final long[] leastSignificant;
+    private final boolean[] used;
+    private int nextVictim;
+
+    @Inject
+    ReactiveRedisDataSource reactiveRedisClient;
+
+    @Inject
+    public PaymentIdempotencyFilter(
+            @ConfigProperty(name = "payment.idempotency.enabled", defaultValue = "true") boolean enabled,
+            @ConfigProperty(name = "payment.idempotency.ttl", defaultValue = "5m") Duration ttl,
+            @ConfigProperty(name = "payment.idempotency.local-capacity", defaultValue = "65536") int localCapacity) {
+        this.enabled = enabled;
+        this.ttl = ttl;
+        int capacity = Integer.highestOneBit(Math.max(PROBES, localCapacity - 1)) << 1;
+        this.mask = capacity - 1;
+        this.mostSignificant = new long[capacity];
+        this.leastSignificant = new long[capacity];
+        this.used = new boolean[capacity];
+    }
+
+    /**
+     * Claims the payment for dispatch.
+     *
+     * @return {@code false} if this or another instance already claimed its correlation id
+     */
+    public Uni<Boolean> tryClaim(PaymentRequest paymentRequest) {
+        if (!enabled) {
+            return Uni.createFrom().item(true);
+        }
+        UUID correlationId = UUID.fromString(paymentRequest.getCorrelationId());
+        if (!addLocally(correlationId)) {
+            return Uni.createFrom().item(false);
+        }
+        return reactiveRedisClient.execute("SET", SEEN_KEY_PREFIX + correlationId, CLAIMED,
+                        "NX", "PX", String.valueOf(ttl.toMillis()))
+                .onItem().transform(response -> response != null)
+                .onFailure().invoke(failure ->
+                        LOG.debug("Idempotency check unavailable for " + correlationId + ": " + failure.getMessage()))
+                .onFailure().recoverWithItem(true);
+    }
+
+    /**
+     * Records that {@code strategy} took the payment. Never fails.
+     */
+    public Uni<Void> markPaid(PaymentRequest paymentRequest, PaymentStrategy strategy) {
+        if (!enabled || strategy == null) {
+            return Uni.createFrom().voidItem();
+        }
+        String correlationId = paymentRequest.getCorrelationId();
+        return reactiveRedisClient.execute("SET", SEEN_KEY_PREFIX + correlationId, PAID + strategy.ordinal(),
+                        "PX", String.valueOf(ttl.toMillis()))
+                .onFailure().invoke(failure ->
+                        LOG.debug("Could not mark " + correlationId + " as paid: " + failure.getMessage()))
+                .onFailure().recoverWithNull()
+                .replaceWithVoid();
+    }
+
+    /**
+     * @return the processor that already took the payment, or {@code null} when none did
+     * or that is unknown
+     */
+    public Uni<PaymentStrategy> paidWith(PaymentRequest paymentRequest) {
+        if (!enabled) {
+            return Uni.createFrom().nullItem();
+        }
+        String correlationId = paymentRequest.getCorrelationId();
+        return reactiveRedisClient.execute("GET", SEEN_KEY_PREFIX + correlationId)
+                .onItem().transform(response -> paidWith(response == null ? null : response.toString()))
+                .onFailure().invoke(failure ->
+                        LOG.debug("Idempotency state unavailable for " + correlationId + ": " + failure.getMessage()))
+                .onFailure().recoverWithNull();
+    }
+
+    /**
+     * Forgets the claim of a payment no processor took, so a later request with the same
+     * correlation id is dispatched again. Never fails.
+     */
+    public Uni<Void> release(PaymentRequest paymentRequest) {
+        if (!enabled) {
+            return Uni.createFrom().voidItem();
+        }
+        UUID correlationId = UUID.fromString(paymentRequest.getCorrelationId());
+        removeLocally(correlationId);
+        return RELEASE_SCRIPT.execute(reactiveRedisClient, "1", SEEN_KEY_PREFIX + correlationId, CLAIMED)
+                .onFailure().invoke(failure ->
+                        LOG.debug("Could not release claim of " + correlationId + ": " + failure.getMessage()))
+                .onFailure().recoverWithNull()
+                .replaceWithVoid();
+    }
+
+    static PaymentStrategy paidWith(String state) {
+        if (state == null || !state.startsWith(PAID)) {
+            return null;
+        }
+        try {
+            int ordinal = Integer.parseInt(state.substring(PAID.length()));
+            PaymentStrategy[] strategies = PaymentStrategy.values();
+            return ordinal >= 0 && ordinal < strategies.length ? strategies[ordinal] : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return {@code false} if the id was already in the table
+     */
+    private synchronized boolean addLocally(UUID correlationId) {
+        long msb = correlationId.getMostSignificantBits();
+        long lsb = correlationId.getLeastSignificantBits();
+        int start = spread(msb ^ lsb) & mask;
+        for (int i = 0; i < PROBES; i++) {
+            int slot = (start + i) & mask;
+            if (!used[slot]) {
+                store(slot, msb, lsb);
+                return true;
+            }
+            if (mostSignificant[slot] == msb && leastSignificant[slot] == lsb) {
+                return false;
+            }
+        }
+        store((start + (nextVictim++ & (PROBES - 1))) & mask, msb, lsb);
+        return true;
+    }
+
+    // Clearing a slot can hide an id stored further along its probe run; that id then falls through to Redis
+    private synchronized void removeLocally(UUID correlationId) {
+        long msb = correlationId.getMostSignificantBits();
+        long lsb = correlationId.getLeastSignificantBits();
+        int start = spread(msb ^ lsb) & mask;
+        for (int i = 0; i < PROBES; i++) {
+            int slot = (start + i) & mask;
+            if (used[slot] && mostSignificant[slot] == msb && leastSignificant[slot] == lsb) {
+                used[slot] = false;
+                return;
+            }
+        }
+    }
+
+    private void store(int slot, long msb, long lsb) {
+        mostSignificant[slot] = msb;
+        leastSignificant[slot] = lsb;
+        used[slot] = true;
+    }
+
+    private static int spread(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return (int) hash;
+    }
+}
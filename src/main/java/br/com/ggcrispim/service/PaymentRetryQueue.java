@@ -0,0 +1,177 @@
+package br.com.ggcrispim.service;
+
+import br.com.ggcrispim.codec.PaymentStreamCodec;
+import br.com.ggcrispim.dto.PaymentRequest;
+import br.com.ggcrispim.model.PaymentStrategy;
+import br.com.ggcrispim.redis.LuaScript;
+import io.quarkus.redis.datasource.ReactiveRedisDataSource;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.redis.client.Response;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Holds payments whose processor call or insert failed until their next attempt is due.
+ *
+ * <p>Entries live in the {@code payments:retry} sorted set scored by next-attempt
+ * epoch millis, so a failed payment costs one ZADD instead of holding a consumer
+ * slot while it sleeps. Delays grow exponentially from {@code base-delay} up to
+ * {@code max-delay}, with jitter so a processor coming back is not hit by every
+ * retry at once. A payment the processor already took is scheduled as persist-only,
+ * so its retry never calls a processor again.
+ *
+ * <p>Polling does not remove entries: it pushes them {@code visibility} into the
+ * future, like a lease, and {@link #complete} removes them once the attempt is
+ * persisted or rescheduled. An instance that dies mid-attempt leaves its entries to
+ * come due again instead of losing them.
+ */
+@ApplicationScoped
+public class PaymentRetryQueue {
+
+    private static final Logger LOG = Logger.getLogger(PaymentRetryQueue.class);
+    private static final String RETRY_KEY = "payments:retry";
+
+    // Lease up to ARGV[2] entries due at ARGV[1] until ARGV[3]; atomic so each entry goes to a single instance
+    private static final LuaScript LEASE_DUE_SCRIPT = new LuaScript("""
+            local due = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2])
+            for _, member in ipairs(due) do
+                redis.call('ZADD', KEYS[1], ARGV[3], member)
+            end
+            return due
+            """);
+
+    @ConfigProperty(name = "payment.retry.base-delay", defaultValue = "100ms")
+    Duration baseDelay;
+
+    @ConfigProperty(name = "payment.retry.max-delay", defaultValue = "5s")
+    Duration maxDelay;
+
+    @ConfigProperty(name = "payment.retry.max-attempts", defaultValue = "30")
+    int maxAttempts;
+
+    @ConfigProperty(name = "payment.retry.visibility", defaultValue = "30s")
+    Duration visibility;
+
+    @Inject
+    ReactiveRedisDataSource reactiveRedisClient;
+
+    @Inject
+    PaymentIdempotencyFilter paymentIdempotencyFilter;
+
+    /**
+     * @param processed whether a processor already took the payment, in which case
+     *                  {@code paymentRequest}'s strategy says which one and only the
+     *                  insert is left
+     * @param member    the raw set member, for {@link #complete}
+     */
+    public record RetryEntry(PaymentRequest paymentRequest, int attempt, boolean processed, byte[] member) {}
+
+    /**
+     * Schedules the next processor call of a payment whose call failed.
+     *
+     * @return {@code true} once the payment is either scheduled or given up on, so its
+     * stream entry can be acknowledged; {@code false} if it could not be stored
+     */
+    public Uni<Boolean> schedule(PaymentRequest paymentRequest, int attempt, Throwable cause) {
+        return schedule(paymentRequest, attempt, false, cause);
+    }
+
+    /**
+     * Schedules the next insert of a payment the processor already took, whose strategy
+     * is set on {@code paymentRequest}.
+     *
+     * @return same as {@link #schedule(PaymentRequest, int, Throwable)}
+     */
+    public Uni<Boolean> schedulePersist(PaymentRequest paymentRequest, int attempt, Throwable cause) {
+        return schedule(paymentRequest, attempt, true, cause);
+    }
+
+    private Uni<Boolean> schedule(PaymentRequest paymentRequest, int attempt, boolean processed, Throwable cause) {
+        if (attempt > maxAttempts) {
+            LOG.error("Giving up on " + (processed ? "persisting payment processed by " + paymentRequest.getPaymentStrategy() : "payment") +
+                    " after " + maxAttempts + " attempts: " + paymentRequest.getCorrelationId(), cause);
+            // No processor took it, so a later request with the same id may try again
+            return processed ? Uni.createFrom().item(true) : paymentIdempotencyFilter.release(paymentRequest).replaceWith(true);
+        }
+
+        long dueAt = System.currentTimeMillis() + backoff(attempt);
+        LOG.debug("Retrying " + (processed ? "insert of " : "") + "payment " + paymentRequest.getCorrelationId() +
+                " (attempt " + attempt + "): " + cause.getMessage());
+
+        return reactiveRedisClient.sortedSet(byte[].class)
+                .zadd(RETRY_KEY, dueAt, encode(paymentRequest, attempt, processed))
+                .onItem().transform(ignored -> true)
+                .onFailure().invoke(failure ->
+                        LOG.error("Failed to schedule retry for payment: " + paymentRequest.getCorrelationId(), failure))
+                .onFailure().recoverWithItem(false);
+    }
+
+    /**
+     * Leases up to {@code limit} entries whose next attempt is due: they stay in the set
+     * but are not handed out again for {@code visibility}.
+     */
+    public Uni<List<RetryEntry>> pollDue(int limit) {
+        return pollDue(limit, System.currentTimeMillis());
+    }
+
+    Uni<List<RetryEntry>> pollDue(int limit, long now) {
+        return LEASE_DUE_SCRIPT.execute(reactiveRedisClient, "1", RETRY_KEY,
+                        String.valueOf(now), String.valueOf(limit), String.valueOf(now + visibility.toMillis()))
+                .onItem().transform(this::decodeAll);
+    }
+
+    /**
+     * Removes a leased entry once its attempt is persisted, rescheduled or given up on.
+     */
+    public Uni<Void> complete(RetryEntry entry) {
+        return reactiveRedisClient.sortedSet(byte[].class)
+                .zrem(RETRY_KEY, entry.member())
+                .replaceWithVoid();
+    }
+
+    private long backoff(int attempt) {
+        long delay = baseDelay.toMillis() << Math.min(attempt - 1, 20);
+        long capped = Math.min(delay, maxDelay.toMillis());
+        return capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1);
+    }
+
+    private List<RetryEntry> decodeAll(Response response) {
+        if (response == null || response.size() == 0) {
+            return List.of();
+        }
+        List<RetryEntry> entries = new ArrayList<>(response.size());
+        for (Response member : response) {
+            entries.add(decode(member.toBytes()));
+        }
+        return entries;
+    }
+
+    // The attempt, the same layout used on the stream and, for persist-only entries, the strategy's ordinal
+    static byte[] encode(PaymentRequest paymentRequest, int attempt, boolean processed) {
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + PaymentStreamCodec.SIZE + (processed ? 1 : 0)).putInt(attempt);
+        PaymentStreamCodec.encode(paymentRequest, buffer);
+        if (processed) {
+            buffer.put((byte) paymentRequest.getPaymentStrategy().ordinal());
+        }
+        return buffer.array();
+    }
+
+    static RetryEntry decode(byte[] member) {
+        ByteBuffer buffer = ByteBuffer.wrap(member);
+        int attempt = buffer.getInt();
+        PaymentRequest paymentRequest = PaymentStreamCodec.decode(buffer);
+        boolean processed = buffer.hasRemaining();
+        if (processed) {
+            paymentRequest.setPaymentStrategy(PaymentStrategy.values()[buffer.get()]);
+        }
+        return new RetryEntry(paymentRequest, attempt, processed, member);
+    }
+}
@@ -0,0 +1,102 @@
+package br.com.ggcrispim.service;
+
+import br.com.ggcrispim.dto.PaymentProcessorState;
+import br.com.ggcrispim.model.PaymentStrategy;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the last known {@link PaymentProcessorState} of each processor and decides
+ * where the next payment goes. Default is cheaper, so it wins whenever it is healthy;
+ * fallback is only used while default is degraded, and when neither is usable the
+ * payment is held back instead of being sent to a processor that is down.
+ *
+ * <p>States are fed by {@link ProcessorHealthMonitor}; reads are plain volatile loads.
+ * A processor marked failing after a failed call stays failing until a snapshot polled
+ * after the mark arrives, so a stale snapshot cannot send traffic straight back to it.
+ */
+@ApplicationScoped
+public class PaymentRouter {
+
+    private static final Logger LOG = Logger.getLogger(PaymentRouter.class);
+    private static final PaymentProcessorState FAILING = new PaymentProcessorState(true, 0);
+
+    private final AtomicReference<PaymentProcessorState> defaultState =
+            new AtomicReference<>(new PaymentProcessorState(false, 0));
+    private final AtomicReference<PaymentProcessorState> fallbackState =
+            new AtomicReference<>(new PaymentProcessorState(false, 0));
+    private final AtomicLong defaultMarkedFailingAt = new AtomicLong();
+    private final AtomicLong fallbackMarkedFailingAt = new AtomicLong();
+
+    @ConfigProperty(name = "payment.routing.max-response-time", defaultValue = "1000")
+    int maxResponseTime;
+
+    /**
+     * Picks the processor for the next payment.
+     *
+     * @return the strategy to use, or {@code null} when no processor should be called right now
+     */
+    public PaymentStrategy route() {
+        PaymentProcessorState defaultProcessor = defaultState.get();
+        if (isHealthy(defaultProcessor)) {
+            return PaymentStrategy.DEFAULT;
+        }
+        PaymentProcessorState fallbackProcessor = fallbackState.get();
+        if (isHealthy(fallbackProcessor)) {
+            return PaymentStrategy.FALLBACK;
+        }
+        // Both are slow: a slow default is still cheaper than a slow fallback
+        if (!defaultProcessor.isFailing()) {
+            return PaymentStrategy.DEFAULT;
+        }
+        return null;
+    }
+
+    public PaymentProcessorState getState(PaymentStrategy strategy) {
+        return stateOf(strategy).get();
+    }
+
+    public void updateState(PaymentStrategy strategy, PaymentProcessorState state) {
+        PaymentProcessorState previous = stateOf(strategy).getAndSet(state);
+        if (previous.isFailing() != state.isFailing()) {
+            LOG.info("Processor " + strategy + " is now " + (state.isFailing() ? "failing" : "healthy"));
+        }
+    }
+
+    /**
+     * Applies a shared health snapshot, unless this instance marked the processor failing
+     * after the snapshot was polled.
+     *
+     * @param polledAt wall-clock millis of the poll that produced {@code state}
+     */
+    public void applySnapshot(PaymentStrategy strategy, PaymentProcessorState state, long polledAt) {
+        if (polledAt > markedFailingAtOf(strategy).get()) {
+            updateState(strategy, state);
+        }
+    }
+
+    /**
+     * Marks a processor as failing after a failed call, so following payments stop
+     * going there until a health snapshot polled after now says otherwise.
+     */
+    public void markFailing(PaymentStrategy strategy) {
+        markedFailingAtOf(strategy).set(System.currentTimeMillis());
+        updateState(strategy, FAILING);
+    }
+
+    private boolean isHealthy(PaymentProcessorState state) {
+        return !state.isFailing() && state.getMinResponseTime() <= maxResponseTime;
+    }
+
+    private AtomicReference<PaymentProcessorState> stateOf(PaymentStrategy strategy) {
+        return strategy == PaymentStrategy.FALLBACK ? fallbackState : defaultState;
+    }
+
+    private AtomicLong markedFailingAtOf(PaymentStrategy strategy) {
+        return strategy == PaymentStrategy.FALLBACK ? fallbackMarkedFailingAt : defaultMarkedFailingAt;
+    }
+}
@@ -4,15 +4,23 @@ import br.com.ggcrispim.dto.PaymentRequest;
 import br.com.ggcrispim.model.PaymentStrategy;
 import br.com.ggcrispim.restclient.PaymentProcessorDefaultClient;
 import br.com.ggcrispim.restclient.PaymentProcessorFallBackClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.core.Response;
-import org.eclipse.microprofile.faulttolerance.Retry;
 import org.eclipse.microprofile.faulttolerance.Timeout;
 import org.eclipse.microprofile.rest.client.inject.RestClient;
 import org.jboss.logging.Logger;
 
+import java.time.Duration;
 import java.time.temporal.ChronoUnit;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @ApplicationScoped
 public class PaymentService {
@@ -23,26 +31,95 @@ public class PaymentService {
     @RestClient
     PaymentProcessorFallBackClient fallbackClient;
 
+    @Inject
+    PaymentRouter paymentRouter;
+
+    @Inject
+    MeterRegistry registry;
+
+    // Built once so a call records without a tag lookup
+    private final Map<PaymentStrategy, Timer> successTimers = new EnumMap<>(PaymentStrategy.class);
+    private final Map<PaymentStrategy, Timer> errorTimers = new EnumMap<>(PaymentStrategy.class);
+
     private static final Logger LOG = Logger.getLogger(PaymentService.class);
+    private static final int UNPROCESSABLE_ENTITY = 422;
+
+    @PostConstruct
+    void registerMetrics() {
+        for (PaymentStrategy strategy : PaymentStrategy.values()) {
+            successTimers.put(strategy, processorTimer(strategy, "success"));
+            errorTimers.put(strategy, processorTimer(strategy, "error"));
+        }
+    }
 
-    @Retry(maxRetries = 10, delay = 5, delayUnit = ChronoUnit.SECONDS, jitter = 50)
-    //@Fallback(fallbackMethod = "processWithFallback")
     @Timeout(value = 5, unit = ChronoUnit.SECONDS)
     public Uni<Response> processPayment(PaymentRequest paymentRequest) {
-        LOG.info("Processing payment for correlationId: " + paymentRequest.getCorrelationId());
+        PaymentStrategy strategy = paymentRouter.route();
+        if (strategy == null) {
+            return Uni.createFrom().failure(new ProcessorUnavailableException(
+                    "No healthy payment processor for correlationId: " + paymentRequest.getCorrelationId()));
+        }
+
+        Uni<Response> call = strategy == PaymentStrategy.DEFAULT
+                ? processWithDefault(paymentRequest)
+                : processWithFallback(paymentRequest);
+
+        long startNanos = System.nanoTime();
+        return call
+                .onItem().invoke(() -> successTimers.get(strategy).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS))
+                .onFailure().invoke(() -> errorTimers.get(strategy).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS))
+                .onFailure(PaymentService::isProcessorFault).invoke(() -> paymentRouter.markFailing(strategy));
+    }
+
+    private Timer processorTimer(PaymentStrategy strategy, String outcome) {
+        return Timer.builder("payments.processor.call")
+                .description("Payment processor call latency")
+                .tag("strategy", strategy.name())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(registry);
+    }
+
+    public Uni<Response> processWithDefault(PaymentRequest paymentRequest) {
+        LOG.debug("Processing payment for correlationId: " + paymentRequest.getCorrelationId());
         paymentRequest.setPaymentStrategy(PaymentStrategy.DEFAULT);
 
         return defaultClient.processPayment(paymentRequest)
                 .onItem().invoke(() ->
-                        LOG.info("Payment processed successfully for correlationId: " + paymentRequest.getCorrelationId()));
+                        LOG.debug("Payment processed successfully for correlationId: " + paymentRequest.getCorrelationId()));
     }
 
     public Uni<Response> processWithFallback(PaymentRequest paymentRequest) {
-        LOG.warn("Using fallback for correlationId: " + paymentRequest.getCorrelationId());
+        LOG.debug("Using fallback for correlationId: " + paymentRequest.getCorrelationId());
         paymentRequest.setPaymentStrategy(PaymentStrategy.FALLBACK);
 
         return fallbackClient.processPayment(paymentRequest)
                 .onItem().invoke(() ->
-                        LOG.info("Payment processed with fallback for correlationId: " + paymentRequest.getCorrelationId()));
+                        LOG.debug("Payment processed with fallback for correlationId: " + paymentRequest.getCorrelationId()));
+    }
+
+    static boolean isProcessorFault(Throwable failure) {
+        // 4xx means the processor is up and rejected this payment, not that it is degraded
+        return !(failure instanceof WebApplicationException wae) || wae.getResponse().getStatus() >= 500;
+    }
+
+    /**
+     * A failure worth another attempt: the processor was unreachable, degraded or not
+     * called at all. A 4xx answer would come back the same every time.
+     */
+    public static boolean isRetryable(Throwable failure) {
+        return isProcessorFault(failure);
+    }
+
+    /**
+     * 422 is the processors' answer to a correlation id they already paid, so an earlier
+     * delivery got through and the payment only needs persisting, under the strategy
+     * that was just called.
+     */
+    public static boolean isAlreadyProcessed(Throwable failure) {
+        return failure instanceof WebApplicationException wae
+                && wae.getResponse().getStatus() == UNPROCESSABLE_ENTITY;
     }
-}
\ No newline at end of file
+}
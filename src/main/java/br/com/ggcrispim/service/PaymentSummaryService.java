@@ -1,58 +1,85 @@
 package br.com.ggcrispim.service;
 
 import br.com.ggcrispim.dto.PaymentSummary;
-import br.com.ggcrispim.dto.Summary;
+import br.com.ggcrispim.model.PaymentAggregateStore;
 import br.com.ggcrispim.model.PaymentSummaryModel;
-import br.com.ggcrispim.model.PaymentSummaryRepository;
-import io.quarkus.hibernate.reactive.panache.common.WithTransaction;
 import io.smallrye.mutiny.Uni;
 import io.vertx.mutiny.sqlclient.Pool;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
-import java.util.List;
+import java.time.format.DateTimeParseException;
 
 @ApplicationScoped
 public class PaymentSummaryService {
 
-    private final PaymentSummaryRepository paymentSummaryRepository;
     private final Pool client;
+    private final PaymentAggregateIndex paymentAggregateIndex;
+    private final PaymentAggregateStore paymentAggregateStore;
+    private final String summarySource;
+    private final boolean staging;
     private static final Logger LOG = Logger.getLogger(RedisQueueService.class);
+    private static final LocalDateTime OPEN_FROM = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime OPEN_TO = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
 
     @Inject
-    public PaymentSummaryService(PaymentSummaryRepository paymentSummaryRepository, Pool client) {
-        this.paymentSummaryRepository = paymentSummaryRepository;
+    public PaymentSummaryService(Pool client,
+            PaymentAggregateIndex paymentAggregateIndex, PaymentAggregateStore paymentAggregateStore,
+            @ConfigProperty(name = "payment.summary.source", defaultValue = "database") String summarySource,
+            @ConfigProperty(name = "payment.persist.mode", defaultValue = "insert") String persistMode) {
         this.client = client;
+        this.paymentAggregateIndex = paymentAggregateIndex;
+        this.paymentAggregateStore = paymentAggregateStore;
+        this.summarySource = summarySource;
+        this.staging = "staging".equals(persistMode);
     }
 
     public Uni<PaymentSummary> getPaymentSummary(String startDate, String endDate) {
-        return PaymentSummaryModel.findPaymentsByDateRange(client, parseDate(startDate), parseDate(endDate))
-                .onItem().transformToUni(payments -> {
-                    if (payments.isEmpty()) {
-                      return Uni.createFrom().item(new PaymentSummary(new Summary(0, 0), new Summary(0, 0)));
-                    } else {
-                        return calculatePaymentSummary(payments);
-                    }
-
-                })
+        LocalDateTime from = parseDate(startDate, OPEN_FROM);
+        LocalDateTime to = parseDate(endDate, OPEN_TO);
+        if ("memory".equals(summarySource)) {
+            // Null once the range reaches past what the index still holds
+            PaymentSummary summary = paymentAggregateIndex.summarize(from, to);
+            if (summary != null) {
+                return Uni.createFrom().item(summary);
+            }
+        }
+        if ("redis".equals(summarySource)) {
+            // Null once the millisecond buckets at an edge of the range have expired
+            return paymentAggregateStore.summarize(from, to)
+                    .onItem().ifNull().switchTo(() -> summarizeFromDatabase(from, to))
+                    .onFailure().invoke(failure -> LOG.error("Error to retrieve aggregates: " + failure.getMessage()))
+                    .onFailure().recoverWithUni(() -> summarizeFromDatabase(from, to));
+        }
+        return summarizeFromDatabase(from, to)
                 .onFailure().invoke( failure -> {
                             LOG.error("Error to retrieve data: " + failure.getMessage());
                 });
 
     }
 
-    private Uni<PaymentSummary> calculatePaymentSummary(List<PaymentSummaryModel> payments) {
-        return Uni.createFrom().item(new PaymentSummary(
-                new Summary(payments.size(), payments.size() * 19.90),
-                new Summary(0, 0)));
+    // Staged rows are not in payment_summary until the next merge
+    private Uni<PaymentSummary> summarizeFromDatabase(LocalDateTime from, LocalDateTime to) {
+        return staging
+                ? PaymentSummaryModel.summarizeByDateRangeWithStaged(client, from, to)
+                : PaymentSummaryModel.summarizeByDateRange(client, from, to);
     }
 
-    private LocalDateTime parseDate(String date) {
-        Instant instant = Instant.parse(date);
-        return LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+    // A missing bound leaves that end of the range open
+    static LocalDateTime parseDate(String date, LocalDateTime unbounded) {
+        if (date == null || date.isEmpty()) {
+            return unbounded;
+        }
+        try {
+            return LocalDateTime.ofInstant(Instant.parse(date), ZoneOffset.UTC);
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("Dates must be ISO-8601 instants: " + date);
+        }
     }
 }
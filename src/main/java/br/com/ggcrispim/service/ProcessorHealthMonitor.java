@@ -0,0 +1,168 @@
+package br.com.ggcrispim.service;
+
+import br.com.ggcrispim.dto.PaymentProcessorState;
+import br.com.ggcrispim.model.PaymentStrategy;
+import br.com.ggcrispim.redis.LuaScript;
+import br.com.ggcrispim.restclient.PaymentProcessorDefaultClient;
+import br.com.ggcrispim.restclient.PaymentProcessorFallBackClient;
+import io.quarkus.redis.datasource.ReactiveRedisDataSource;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Polls the processors' service-health endpoints from a single instance and shares
+ * the result with every replica through Redis.
+ *
+ * <p>The poller is whoever holds the {@code payments:health:leader} lease. Every tick
+ * each instance tries to acquire or renew it, so when the leader dies the key expires
+ * and the next instance to tick takes over. The leader writes the snapshot and the
+ * time of its last poll to {@code payments:health}; the poll time lives in Redis so a
+ * new leader keeps respecting the processors' rate limit. Every instance copies the
+ * snapshot into {@link PaymentRouter}, so routing a payment never touches Redis.
+ *
+ * <p>A health check that fails only means this poll learned nothing about that
+ * processor: its last published state and poll time are kept, and failed payment calls
+ * mark it failing locally anyway.
+ */
+@ApplicationScoped
+public class ProcessorHealthMonitor {
+
+    private static final Logger LOG = Logger.getLogger(ProcessorHealthMonitor.class);
+    private static final String LEADER_KEY = "payments:health:leader";
+    private static final String HEALTH_KEY = "payments:health";
+    private static final String POLLED_AT_FIELD = "polledAt";
+
+    // Acquire the lease if free, renew it if we already hold it
+    private static final LuaScript LEASE_SCRIPT = new LuaScript("""
+            local owner = redis.call('GET', KEYS[1])
+            if not owner then
+                redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2])
+                return 1
+            end
+            if owner == ARGV[1] then
+                redis.call('PEXPIRE', KEYS[1], ARGV[2])
+                return 1
+            end
+            return 0
+            """);
+
+    @ConfigProperty(name = "payment.instance-id")
+    String instanceId;
+
+    @ConfigProperty(name = "payment.health.lease", defaultValue = "3s")
+    Duration lease;
+
+    @ConfigProperty(name = "payment.health.poll-interval", defaultValue = "5s")
+    Duration pollInterval;
+
+    @Inject
+    ReactiveRedisDataSource reactiveRedisClient;
+
+    @Inject
+    PaymentRouter paymentRouter;
+
+    @RestClient
+    PaymentProcessorDefaultClient defaultClient;
+
+    @RestClient
+    PaymentProcessorFallBackClient fallbackClient;
+
+    private volatile boolean leader;
+
+    @Scheduled(every = "${payment.health.tick:1s}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    public Uni<Void> tick() {
+        return acquireLease()
+                .onItem().transformToUni(acquired -> {
+                    if (acquired != leader) {
+                        LOG.info("Instance " + instanceId + (acquired ? " is now" : " is no longer") + " the health poller");
+                        leader = acquired;
+                    }
+                    return acquired ? pollIfDue() : Uni.createFrom().voidItem();
+                })
+                .onItem().transformToUni(ignored -> readSnapshot())
+                .onFailure().invoke(failure -> LOG.debug("Health monitor tick failed: " + failure.getMessage()))
+                .onFailure().recoverWithNull()
+                .replaceWithVoid();
+    }
+
+    public boolean isLeader() {
+        return leader;
+    }
+
+    private Uni<Boolean> acquireLease() {
+        return LEASE_SCRIPT.execute(reactiveRedisClient, "1", LEADER_KEY, instanceId,
+                        String.valueOf(lease.toMillis()))
+                .onItem().transform(response -> response.toInteger() == 1);
+    }
+
+    private Uni<Void> pollIfDue() {
+        return reactiveRedisClient.hash(String.class).hget(HEALTH_KEY, POLLED_AT_FIELD)
+                .onItem().transformToUni(polledAt -> {
+                    long now = System.currentTimeMillis();
+                    if (polledAt != null && now - Long.parseLong(polledAt) < pollInterval.toMillis()) {
+                        return Uni.createFrom().voidItem();
+                    }
+                    return Uni.combine().all().unis(
+                                    pollHealth(PaymentStrategy.DEFAULT, defaultClient.serviceHealth()),
+                                    pollHealth(PaymentStrategy.FALLBACK, fallbackClient.serviceHealth()))
+                            .asTuple()
+                            .onItem().transformToUni(states -> publishSnapshot(now, states.getItem1(), states.getItem2()));
+                });
+    }
+
+    // Null when the check itself failed (timeout, 429, connection refused)
+    private Uni<PaymentProcessorState> pollHealth(PaymentStrategy strategy, Uni<PaymentProcessorState> healthCheck) {
+        return healthCheck
+                .onFailure().invoke(failure ->
+                        LOG.debug("Health check failed for processor " + strategy + ": " + failure.getMessage()))
+                .onFailure().recoverWithNull();
+    }
+
+    private Uni<Void> publishSnapshot(long polledAt, PaymentProcessorState defaultState, PaymentProcessorState fallbackState) {
+        Map<String, String> snapshot = new HashMap<>();
+        snapshot.put(POLLED_AT_FIELD, String.valueOf(polledAt));
+        if (defaultState != null) {
+            snapshot.put(PaymentStrategy.DEFAULT.name(), encode(defaultState, polledAt));
+        }
+        if (fallbackState != null) {
+            snapshot.put(PaymentStrategy.FALLBACK.name(), encode(fallbackState, polledAt));
+        }
+        return reactiveRedisClient.hash(String.class).hset(HEALTH_KEY, snapshot).replaceWithVoid();
+    }
+
+    private Uni<Void> readSnapshot() {
+        return reactiveRedisClient.hash(String.class).hgetall(HEALTH_KEY)
+                .onItem().invoke(snapshot -> {
+                    applyState(PaymentStrategy.DEFAULT, snapshot.get(PaymentStrategy.DEFAULT.name()));
+                    applyState(PaymentStrategy.FALLBACK, snapshot.get(PaymentStrategy.FALLBACK.name()));
+                })
+                .replaceWithVoid();
+    }
+
+    private void applyState(PaymentStrategy strategy, String encoded) {
+        if (encoded != null) {
+            int separator = encoded.lastIndexOf(':');
+            paymentRouter.applySnapshot(strategy, decode(encoded), Long.parseLong(encoded.substring(separator + 1)));
+        }
+    }
+
+    // failing:minResponseTime:polledAt, each processor keeping the time it last answered
+    private static String encode(PaymentProcessorState state, long polledAt) {
+        return (state.isFailing() ? "1" : "0") + ":" + state.getMinResponseTime() + ":" + polledAt;
+    }
+
+    private static PaymentProcessorState decode(String encoded) {
+        int first = encoded.indexOf(':');
+        int second = encoded.indexOf(':', first + 1);
+        return new PaymentProcessorState(encoded.charAt(0) == '1', Integer.parseInt(encoded.substring(first + 1, second)));
+    }
+}
@@ -0,0 +1,8 @@
+package br.com.ggcrispim.service;
+
+public class ProcessorUnavailableException extends RuntimeException {
+
+    public ProcessorUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -2,9 +2,9 @@ package br.com.ggcrispim.service;
 
 
 import br.com.ggcrispim.dto.PaymentRequest;
-import br.com.ggcrispim.model.PaymentSummaryRepository;
-import br.com.ggcrispim.producer.PaymentStreamProducer;
-import io.quarkus.redis.datasource.ReactiveRedisDataSource;
+import br.com.ggcrispim.queue.PaymentQueue;
+import br.com.ggcrispim.queue.WriteBehindPaymentBuffer;
+import br.com.ggcrispim.trace.PaymentTracer;
 import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -15,23 +15,31 @@ import java.time.LocalDateTime;
 @ApplicationScoped
 public class RedisQueueService {
 
-    private final PaymentStreamProducer paymentStreamProducer;
+    private final PaymentQueue paymentQueue;
+    private final WriteBehindPaymentBuffer writeBehindBuffer;
     private final PaymentService paymentService;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final PaymentTracer paymentTracer;
 
     @Inject
-    public RedisQueueService(ReactiveRedisDataSource reactiveRedisClient, PaymentSummaryRepository paymentSummaryRepository, PaymentStreamProducer paymentStreamProducer,
-            PaymentService paymentService) {
-        this.paymentStreamProducer = paymentStreamProducer;
+    public RedisQueueService(PaymentQueue paymentQueue, WriteBehindPaymentBuffer writeBehindBuffer,
+            PaymentService paymentService, AdaptiveConcurrencyLimiter concurrencyLimiter, PaymentTracer paymentTracer) {
+        this.paymentQueue = paymentQueue;
+        this.writeBehindBuffer = writeBehindBuffer;
         this.paymentService = paymentService;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.paymentTracer = paymentTracer;
     }
 
     private static final Logger LOG = Logger.getLogger(RedisQueueService.class);
 
     public Uni<Void> enqueueJob(PaymentRequest paymentRequest) {
         paymentRequest.setRequestedAt(LocalDateTime.now());
-        return paymentStreamProducer.addPaymentToStream(paymentRequest)
+        return paymentTracer.traceEnqueue(paymentRequest, () -> writeBehindBuffer.isEnabled()
+                        ? writeBehindBuffer.accept(paymentRequest)
+                        : paymentQueue.enqueue(paymentRequest))
                 .onItem().call(x -> {
-                    LOG.info("Job enqueued with correlationId: " + paymentRequest.getCorrelationId());
+                    LOG.debug("Job enqueued with correlationId: " + paymentRequest.getCorrelationId());
                     return Uni.createFrom().voidItem();
                 })
                 .onFailure().call(failure -> {
@@ -42,12 +50,16 @@ public class RedisQueueService {
     }
 
     public Uni<PaymentRequest> processPaymentWithHealthCheck(PaymentRequest paymentRequest) {
-        return paymentService.processPayment(paymentRequest)
+        return concurrencyLimiter.run(() -> paymentService.processPayment(paymentRequest),
+                        RedisQueueService::isOverload, paymentRequest::getPaymentStrategy)
                 .onItem().transform(response -> {
-                    LOG.info("Payment processed successfully for correlationId: " + paymentRequest.getCorrelationId());
+                    LOG.debug("Payment processed successfully for correlationId: " + paymentRequest.getCorrelationId());
                     return paymentRequest;
                 });
     }
 
+    // A held-back payment never reached a processor, so it says nothing about its capacity
+    private static boolean isOverload(Throwable failure) {
+        return !(failure instanceof ProcessorUnavailableException) && PaymentService.isProcessorFault(failure);
+    }
 }
-
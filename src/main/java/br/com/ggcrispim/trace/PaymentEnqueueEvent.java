@@ -0,0 +1,23 @@
+package br.com.ggcrispim.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * {@code POST /payments} handing a payment to the queue; the event's duration is the
+ * enqueue time.
+ */
+@Name("br.com.ggcrispim.PaymentEnqueue")
+@Label("Payment Enqueue")
+@Category({"Rinha", "Payments"})
+@StackTrace(false)
+class PaymentEnqueueEvent extends jdk.jfr.Event {
+
+    @Label("Correlation Id")
+    String correlationId;
+
+    @Label("Succeeded")
+    boolean succeeded;
+}
@@ -0,0 +1,59 @@
+package br.com.ggcrispim.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * One delivery of a payment through the consumer, with the time spent in each stage.
+ */
+@Name("br.com.ggcrispim.Payment")
+@Label("Payment")
+@Category({"Rinha", "Payments"})
+@Description("A payment's trip from the queue to acknowledgement")
+@StackTrace(false)
+class PaymentEvent extends Event {
+
+    @Label("Correlation Id")
+    String correlationId;
+
+    @Label("Strategy")
+    String strategy;
+
+    @Label("Outcome")
+    String outcome;
+
+    @Label("Attempt")
+    int attempt;
+
+    @Label("Queued")
+    @Description("From POST /payments until a lane picked it up")
+    @Timespan(Timespan.MILLISECONDS)
+    long queued;
+
+    @Label("Dispatch")
+    @Description("Duplicate check before the processor call")
+    @Timespan(Timespan.NANOSECONDS)
+    long dispatch;
+
+    @Label("Processor")
+    @Description("Processor call, including the wait for a concurrency permit")
+    @Timespan(Timespan.NANOSECONDS)
+    long processor;
+
+    @Label("Persist")
+    @Timespan(Timespan.NANOSECONDS)
+    long persist;
+
+    @Label("Ack")
+    @Timespan(Timespan.NANOSECONDS)
+    long ack;
+
+    @Label("Total")
+    @Timespan(Timespan.NANOSECONDS)
+    long total;
+}
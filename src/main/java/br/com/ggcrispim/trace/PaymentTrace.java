@@ -0,0 +1,115 @@
+package br.com.ggcrispim.trace;
+
+import br.com.ggcrispim.dto.PaymentRequest;
+import br.com.ggcrispim.model.PaymentStrategy;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Where one delivery of a payment spent its time. Stages run one after another along a
+ * single reactive chain, so plain fields are enough.
+ *
+ * <p>A polled batch is acknowledged at once, so its traces share the ack time and end
+ * together; their totals say more about the batch than about the payment. Payments are
+ * therefore ranked by their own stages, dispatch plus processor plus persist.
+ */
+public final class PaymentTrace {
+
+    // Serialized by Jackson for GET /admin/payments/slowest
+    @RegisterForReflection
+    public record Snapshot(String correlationId, String strategy, String outcome, int attempt,
+                           long queuedMillis, double dispatchMillis, double processorMillis,
+                           double persistMillis, double ackMillis, double ownMillis, double totalMillis) {}
+
+    private final String correlationId;
+    private final int attempt;
+    private final long queuedMillis;
+    private final long startNanos;
+    private PaymentStrategy strategy;
+    private String outcome = "pending";
+    private long dispatchNanos;
+    private long processorNanos;
+    private long persistNanos;
+    private long ackNanos;
+    private long totalNanos;
+
+    PaymentTrace(PaymentRequest paymentRequest, int attempt) {
+        this.correlationId = paymentRequest.getCorrelationId();
+        this.attempt = attempt;
+        this.startNanos = System.nanoTime();
+        // Time since POST /payments stamped it, possibly on another instance, so wall clock
+        this.queuedMillis = paymentRequest.getRequestedAt() == null ? 0
+                : Duration.between(paymentRequest.getRequestedAt(), LocalDateTime.now()).toMillis();
+    }
+
+    /**
+     * @return the start of the processor call, for {@link #processed} or {@link #failed}
+     */
+    public long dispatched() {
+        long now = System.nanoTime();
+        dispatchNanos = now - startNanos;
+        return now;
+    }
+
+    public void processed(long processorStartNanos, PaymentStrategy strategy) {
+        this.processorNanos = System.nanoTime() - processorStartNanos;
+        this.strategy = strategy;
+        this.outcome = "processed";
+    }
+
+    public void failed(long processorStartNanos) {
+        this.processorNanos = System.nanoTime() - processorStartNanos;
+        this.outcome = "retry";
+    }
+
+    public void rejected(long processorStartNanos) {
+        this.processorNanos = System.nanoTime() - processorStartNanos;
+        this.outcome = "rejected";
+    }
+
+    public void persisted(long persistStartNanos) {
+        this.persistNanos = System.nanoTime() - persistStartNanos;
+    }
+
+    public void duplicate() {
+        this.outcome = "duplicate";
+    }
+
+    void finish(long ackNanos) {
+        this.ackNanos = ackNanos;
+        this.totalNanos = System.nanoTime() - startNanos;
+    }
+
+    /**
+     * @return the time spent in this payment's own stages, without the shared ack
+     */
+    long ownNanos() {
+        return dispatchNanos + processorNanos + persistNanos;
+    }
+
+    void commit(PaymentEvent event) {
+        event.correlationId = correlationId;
+        event.strategy = strategy == null ? null : strategy.name();
+        event.outcome = outcome;
+        event.attempt = attempt;
+        event.queued = queuedMillis;
+        event.dispatch = dispatchNanos;
+        event.processor = processorNanos;
+        event.persist = persistNanos;
+        event.ack = ackNanos;
+        event.total = totalNanos;
+        event.commit();
+    }
+
+    Snapshot snapshot() {
+        return new Snapshot(correlationId, strategy == null ? null : strategy.name(), outcome, attempt,
+                queuedMillis, millis(dispatchNanos), millis(processorNanos), millis(persistNanos),
+                millis(ackNanos), millis(ownNanos()), millis(totalNanos));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
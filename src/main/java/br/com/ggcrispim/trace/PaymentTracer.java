@@ -0,0 +1,71 @@
+package br.com.ggcrispim.trace;
+
+import br.com.ggcrispim.dto.PaymentRequest;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Per-payment stage timings. Each finished trace is emitted as a {@code br.com.ggcrispim.Payment}
+ * JFR event, which costs a field check when no recording is running, and offered to a
+ * table of the slowest payments served by {@code GET /admin/payments/slowest} on the
+ * management port.
+ *
+ * <p>To record: {@code jcmd <pid> JFR.start name=payments settings=profile} (or
+ * {@code -XX:StartFlightRecording}) and open the file in JDK Mission Control under
+ * Rinha / Payments.
+ */
+@ApplicationScoped
+public class PaymentTracer {
+
+    private final SlowestPayments slowest;
+
+    public PaymentTracer(@ConfigProperty(name = "payment.trace.slowest", defaultValue = "32") int slowestCapacity) {
+        this.slowest = new SlowestPayments(slowestCapacity);
+    }
+
+    public PaymentTrace start(PaymentRequest paymentRequest, int attempt) {
+        return new PaymentTrace(paymentRequest, attempt);
+    }
+
+    public void finish(PaymentTrace trace, long ackNanos) {
+        trace.finish(ackNanos);
+        PaymentEvent event = new PaymentEvent();
+        if (event.isEnabled()) {
+            trace.commit(event);
+        }
+        slowest.offer(trace);
+    }
+
+    /**
+     * Wraps an enqueue in a {@code br.com.ggcrispim.PaymentEnqueue} event timed from
+     * subscription to its outcome.
+     */
+    public <T> Uni<T> traceEnqueue(PaymentRequest paymentRequest, Supplier<Uni<T>> enqueue) {
+        return Uni.createFrom().deferred(() -> {
+            PaymentEnqueueEvent event = new PaymentEnqueueEvent();
+            if (!event.isEnabled()) {
+                return enqueue.get();
+            }
+            event.begin();
+            return enqueue.get()
+                    .onItemOrFailure().invoke((item, failure) -> {
+                        event.end();
+                        event.correlationId = paymentRequest.getCorrelationId();
+                        event.succeeded = failure == null;
+                        event.commit();
+                    });
+        });
+    }
+
+    public List<PaymentTrace.Snapshot> slowest() {
+        return slowest.snapshot();
+    }
+
+    public void reset() {
+        slowest.clear();
+    }
+}
@@ -0,0 +1,90 @@
+package br.com.ggcrispim.trace;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The {@code capacity} slowest traces seen so far, ranked by {@link PaymentTrace#ownNanos},
+ * without locks. Once the table is full most payments are faster than its fastest entry
+ * and are turned away by one volatile read; a slower one replaces that entry with a CAS
+ * and retries if another lane got there first.
+ */
+final class SlowestPayments {
+
+    private final AtomicReferenceArray<PaymentTrace> slots;
+    // Own time of the fastest entry once the table is full; anything at or below it cannot get in
+    private volatile long threshold;
+
+    SlowestPayments(int capacity) {
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    void offer(PaymentTrace trace) {
+        long own = trace.ownNanos();
+        while (own > threshold) {
+            int victim = -1;
+            long victimOwn = Long.MAX_VALUE;
+            PaymentTrace victimTrace = null;
+            for (int i = 0; i < slots.length(); i++) {
+                PaymentTrace current = slots.get(i);
+                if (current == null) {
+                    victim = i;
+                    victimTrace = null;
+                    victimOwn = Long.MIN_VALUE;
+                    break;
+                }
+                if (current.ownNanos() < victimOwn) {
+                    victim = i;
+                    victimTrace = current;
+                    victimOwn = current.ownNanos();
+                }
+            }
+            if (victimOwn >= own) {
+                threshold = victimOwn;
+                return;
+            }
+            if (slots.compareAndSet(victim, victimTrace, trace)) {
+                updateThreshold();
+                return;
+            }
+        }
+    }
+
+    List<PaymentTrace.Snapshot> snapshot() {
+        List<PaymentTrace> traces = new ArrayList<>(slots.length());
+        for (int i = 0; i < slots.length(); i++) {
+            PaymentTrace trace = slots.get(i);
+            if (trace != null) {
+                traces.add(trace);
+            }
+        }
+        traces.sort(Comparator.comparingLong(PaymentTrace::ownNanos).reversed());
+        List<PaymentTrace.Snapshot> snapshots = new ArrayList<>(traces.size());
+        for (PaymentTrace trace : traces) {
+            snapshots.add(trace.snapshot());
+        }
+        return snapshots;
+    }
+
+    void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, null);
+        }
+        threshold = 0;
+    }
+
+    // A racing update may leave the threshold a little low; that only costs an extra scan
+    private void updateThreshold() {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < slots.length(); i++) {
+            PaymentTrace current = slots.get(i);
+            if (current == null) {
+                return;
+            }
+            min = Math.min(min, current.ownNanos());
+        }
+        threshold = min;
+    }
+}
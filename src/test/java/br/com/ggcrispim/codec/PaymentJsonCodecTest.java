@@ -0,0 +1,115 @@
+package br.com.ggcrispim.codec;
+
+import br.com.ggcrispim.dto.PaymentProcessorState;
+import br.com.ggcrispim.dto.PaymentRequest;
+import br.com.ggcrispim.dto.PaymentSummary;
+import br.com.ggcrispim.dto.Summary;
+import jakarta.ws.rs.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PaymentJsonCodecTest {
+
+    private static final String CORRELATION_ID = "4a7901b8-7d26-4d9d-aa19-4dc1c7cf60b3";
+
+    @Test
+    void decodesPaymentRequest() {
+        PaymentRequest request = decode("{\"correlationId\":\"" + CORRELATION_ID + "\",\"amount\":19.90}");
+
+        assertEquals(CORRELATION_ID, request.getCorrelationId());
+        assertEquals(19.90, request.getAmount());
+        assertNull(request.getRequestedAt());
+    }
+
+    @Test
+    void skipsUnknownFieldsAndWhitespace() {
+        PaymentRequest request = decode(" {\n \"extra\": {\"nested\": [1, \"}\", {\"x\": null}]},\t\"amount\" : 1e2 ,"
+                + " \"flag\": true, \"correlationId\": \"" + CORRELATION_ID + "\", \"note\": \"a \\\"quoted\\\" word\" }");
+
+        assertEquals(CORRELATION_ID, request.getCorrelationId());
+        assertEquals(100.0, request.getAmount());
+    }
+
+    @Test
+    void decodesRequestedAtAsUtc() {
+        PaymentRequest request = decode("{\"correlationId\":\"" + CORRELATION_ID + "\",\"amount\":1,"
+                + "\"requestedAt\":\"2025-07-15T12:34:56.789Z\"}");
+
+        assertEquals(LocalDateTime.of(2025, 7, 15, 12, 34, 56, 789_000_000), request.getRequestedAt());
+    }
+
+    @Test
+    void rejectsMalformedJson() {
+        assertBadRequest("");
+        assertBadRequest("[]");
+        assertBadRequest("{\"correlationId\":\"" + CORRELATION_ID + "\",\"amount\":");
+        assertBadRequest("{\"correlationId\":\"" + CORRELATION_ID + "\",\"amount\":\"12\"}");
+        assertBadRequest("{\"correlationId\":\"" + CORRELATION_ID + "\",\"amount\":1.2.3}");
+        assertBadRequest("{\"correlationId\":\"" + CORRELATION_ID);
+        assertBadRequest("{\"correlationId\":\"" + CORRELATION_ID + "\",\"amount\":1,\"requestedAt\":\"yesterday\"}");
+    }
+
+    @Test
+    void rejectsMissingOrInvalidFields() {
+        assertBadRequest("{\"amount\":10}");
+        assertBadRequest("{\"correlationId\":\"not-a-uuid\",\"amount\":10}");
+        assertBadRequest("{\"correlationId\":\"1-1-1-1-1\",\"amount\":10}");
+        assertBadRequest("{\"correlationId\":\"" + CORRELATION_ID + "\"}");
+        assertBadRequest("{\"correlationId\":\"" + CORRELATION_ID + "\",\"amount\":0}");
+        assertBadRequest("{\"correlationId\":\"" + CORRELATION_ID + "\",\"amount\":-5}");
+    }
+
+    @Test
+    void acceptsOnlyCanonicalUuids() {
+        assertTrue(PaymentJsonCodec.isUuid(CORRELATION_ID));
+        assertTrue(PaymentJsonCodec.isUuid(CORRELATION_ID.toUpperCase()));
+        assertFalse(PaymentJsonCodec.isUuid(null));
+        assertFalse(PaymentJsonCodec.isUuid("1-1-1-1-1"));
+        assertFalse(PaymentJsonCodec.isUuid(CORRELATION_ID.replace('-', '_')));
+        assertFalse(PaymentJsonCodec.isUuid(CORRELATION_ID.substring(1) + "g"));
+    }
+
+    @Test
+    void decodesProcessorState() {
+        PaymentProcessorState state = PaymentJsonCodec.decodeProcessorState(
+                "{\"failing\":true,\"minResponseTime\":120}".getBytes(StandardCharsets.UTF_8));
+
+        assertTrue(state.isFailing());
+        assertEquals(120, state.getMinResponseTime());
+    }
+
+    @Test
+    void encodesPaymentRequestWithCentsAndMillis() {
+        PaymentRequest request = new PaymentRequest(CORRELATION_ID, 19.9,
+                LocalDateTime.of(2025, 7, 5, 3, 4, 5, 6_000_000));
+
+        assertEquals("{\"correlationId\":\"" + CORRELATION_ID + "\",\"amount\":19.90,"
+                        + "\"requestedAt\":\"2025-07-05T03:04:05.006Z\"}",
+                PaymentJsonCodec.encodePaymentRequest(request).toString());
+    }
+
+    @Test
+    void encodesPaymentSummary() {
+        PaymentSummary summary = new PaymentSummary(new Summary(3, 1234.56), new Summary(0, 0));
+
+        assertEquals("{\"default\":{\"totalRequests\":3,\"totalAmount\":1234.56},"
+                        + "\"fallback\":{\"totalRequests\":0,\"totalAmount\":0.00}}",
+                PaymentJsonCodec.encodePaymentSummary(summary).toString());
+    }
+
+    private static PaymentRequest decode(String json) {
+        return PaymentJsonCodec.decodePaymentRequest(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void assertBadRequest(String json) {
+        assertThrows(BadRequestException.class, () -> decode(json), json);
+    }
+}
@@ -0,0 +1,62 @@
+package br.com.ggcrispim.codec;
+
+import br.com.ggcrispim.dto.PaymentRequest;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PaymentStreamCodecTest {
+
+    private static final String CORRELATION_ID = "4a7901b8-7d26-4d9d-aa19-4dc1c7cf60b3";
+
+    @Test
+    void roundTripsPayment() {
+        LocalDateTime requestedAt = LocalDateTime.of(2025, 7, 15, 14, 3, 21, 457_000_000);
+
+        byte[] bytes = PaymentStreamCodec.encode(new PaymentRequest(CORRELATION_ID, 19.90, requestedAt));
+        PaymentRequest decoded = PaymentStreamCodec.decode(bytes);
+
+        assertEquals(PaymentStreamCodec.SIZE, bytes.length);
+        assertEquals(CORRELATION_ID, decoded.getCorrelationId());
+        assertEquals(19.90, decoded.getAmount());
+        assertEquals(requestedAt, decoded.getRequestedAt());
+    }
+
+    @Test
+    void storesAmountInCents() {
+        byte[] bytes = PaymentStreamCodec.encode(new PaymentRequest(CORRELATION_ID, 0.1 + 0.2, LocalDateTime.of(2025, 1, 1, 0, 0)));
+
+        assertEquals(30L, ByteBuffer.wrap(bytes).getLong(16));
+        assertEquals(0.30, PaymentStreamCodec.decode(bytes).getAmount());
+    }
+
+    @Test
+    void truncatesRequestedAtToMillis() {
+        LocalDateTime requestedAt = LocalDateTime.of(2025, 7, 15, 14, 3, 21, 457_999_999);
+
+        PaymentRequest decoded = PaymentStreamCodec.decode(
+                PaymentStreamCodec.encode(new PaymentRequest(CORRELATION_ID, 1, requestedAt)));
+
+        assertEquals(requestedAt.withNano(457_000_000), decoded.getRequestedAt());
+    }
+
+    @Test
+    void decodesTimestampsBeforeEpoch() {
+        LocalDateTime requestedAt = LocalDateTime.of(1969, 12, 31, 23, 59, 59, 999_000_000);
+
+        PaymentRequest decoded = PaymentStreamCodec.decode(
+                PaymentStreamCodec.encode(new PaymentRequest(CORRELATION_ID, 1, requestedAt)));
+
+        assertEquals(requestedAt, decoded.getRequestedAt());
+    }
+
+    @Test
+    void rejectsShortEntries() {
+        assertThrows(IllegalArgumentException.class, () -> PaymentStreamCodec.decode(new byte[PaymentStreamCodec.SIZE - 1]));
+        assertThrows(IllegalArgumentException.class, () -> PaymentStreamCodec.decode((byte[]) null));
+    }
+}
@@ -0,0 +1,71 @@
+package br.com.ggcrispim.controller;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import io.restassured.response.ValidatableResponse;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Runs against the test profile, which answers summaries from the in-process index and
+ * points Redis, Postgres and the processors at addresses nothing needs to listen on:
+ * bad input must be rejected before any of them is touched.
+ */
+@QuarkusTest
+class PaymentApiTest {
+
+    @Test
+    void rejectsMalformedPaymentBody() {
+        postPayment("{\"correlationId\":\"4a7901b8-7d26-4d9d-aa19-4dc1c7cf60b3\",\"amount\":")
+                .statusCode(400);
+    }
+
+    @Test
+    void rejectsInvalidCorrelationId() {
+        postPayment("{\"correlationId\":\"not-a-uuid\",\"amount\":19.90}")
+                .statusCode(400);
+    }
+
+    @Test
+    void rejectsNonPositiveAmount() {
+        postPayment("{\"correlationId\":\"4a7901b8-7d26-4d9d-aa19-4dc1c7cf60b3\",\"amount\":-1}")
+                .statusCode(400);
+    }
+
+    @Test
+    void rejectsMalformedSummaryDates() {
+        given()
+                .queryParam("from", "yesterday")
+                .queryParam("to", Instant.now().toString())
+                .when().get("/payments-summary")
+                .then().statusCode(400);
+    }
+
+    @Test
+    void answersSummaryInTheExpectedShape() {
+        Instant now = Instant.now();
+        given()
+                .queryParam("from", now.minusSeconds(5).toString())
+                .queryParam("to", now.toString())
+                .when().get("/payments-summary")
+                .then()
+                .statusCode(200)
+                .contentType(ContentType.JSON)
+                .body("default.totalRequests", equalTo(0))
+                .body("default.totalAmount", equalTo(0.0f))
+                .body("fallback.totalRequests", equalTo(0))
+                .body("fallback.totalAmount", equalTo(0.0f));
+    }
+
+    private static ValidatableResponse postPayment(String body) {
+        return given()
+                .contentType(ContentType.JSON)
+                .body(body)
+                .when().post("/payments")
+                .then();
+    }
+}
@@ -0,0 +1,132 @@
+package br.com.ggcrispim.model;
+
+import br.com.ggcrispim.dto.PaymentRequest;
+import br.com.ggcrispim.dto.PaymentSummary;
+import br.com.ggcrispim.redis.RedisTestProfile;
+import io.quarkus.redis.datasource.ReactiveRedisDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Runs the record and summary scripts against a real Redis, at a fixed {@code now} a
+ * minute past the recorded payments so the retention horizon does not follow the wall clock.
+ */
+@QuarkusTest
+@TestProfile(RedisTestProfile.class)
+class PaymentAggregateStoreTest {
+
+    private static final LocalDateTime SECOND = LocalDateTime.of(2025, 7, 15, 14, 0);
+    private static final long NOW = SECOND.toEpochSecond(ZoneOffset.UTC) * 1000 + 60_000;
+
+    @Inject
+    PaymentAggregateStore paymentAggregateStore;
+
+    @Inject
+    ReactiveRedisDataSource redis;
+
+    @BeforeEach
+    void recordPayments() {
+        redis.flushall().await().indefinitely();
+        paymentAggregateStore.recordAll(List.of(
+                payment(1, PaymentStrategy.DEFAULT, 100, 10.00),
+                payment(2, PaymentStrategy.DEFAULT, 900, 20.00),
+                payment(3, PaymentStrategy.FALLBACK, 1500, 5.00),
+                payment(4, PaymentStrategy.DEFAULT, 2000, 1.00)), NOW).await().indefinitely();
+    }
+
+    @Test
+    void sumsWholeSeconds() {
+        PaymentSummary summary = summarize(0, 2999);
+
+        assertEquals(3, summary.getDefaultPayment().getTotalRequests());
+        assertEquals(31.00, summary.getDefaultPayment().getTotalAmount());
+        assertEquals(1, summary.getFallbackPayment().getTotalRequests());
+        assertEquals(5.00, summary.getFallbackPayment().getTotalAmount());
+    }
+
+    @Test
+    void readsPartialEdgesFromMillisecondBuckets() {
+        PaymentSummary head = summarize(500, 1999);
+        assertEquals(1, head.getDefaultPayment().getTotalRequests());
+        assertEquals(20.00, head.getDefaultPayment().getTotalAmount());
+        assertEquals(1, head.getFallbackPayment().getTotalRequests());
+
+        PaymentSummary tail = summarize(0, 1499);
+        assertEquals(2, tail.getDefaultPayment().getTotalRequests());
+        assertEquals(0, tail.getFallbackPayment().getTotalRequests());
+    }
+
+    @Test
+    void sumsRangeWithinOneSecond() {
+        PaymentSummary summary = summarize(50, 150);
+
+        assertEquals(1, summary.getDefaultPayment().getTotalRequests());
+        assertEquals(10.00, summary.getDefaultPayment().getTotalAmount());
+        assertEquals(0, summary.getFallbackPayment().getTotalRequests());
+    }
+
+    @Test
+    void sumsOpenEndedRange() {
+        PaymentSummary summary = paymentAggregateStore.summarize(
+                LocalDateTime.of(1970, 1, 1, 0, 0), LocalDateTime.of(9999, 12, 31, 23, 59, 59), NOW).await().indefinitely();
+
+        assertEquals(3, summary.getDefaultPayment().getTotalRequests());
+        assertEquals(1, summary.getFallbackPayment().getTotalRequests());
+    }
+
+    @Test
+    void sumsAcrossHourHashes() {
+        paymentAggregateStore.recordAll(List.of(payment(5, PaymentStrategy.DEFAULT, -500, 2.00)), NOW)
+                .await().indefinitely();
+
+        PaymentSummary summary = summarize(-1000, 2999);
+        assertEquals(4, summary.getDefaultPayment().getTotalRequests());
+        assertEquals(33.00, summary.getDefaultPayment().getTotalAmount());
+    }
+
+    @Test
+    void givesUpPastTheRetentionHorizon() {
+        // The payments' hour started at SECOND, so the default 2h retention ends at SECOND + 2h
+        long horizon = SECOND.toEpochSecond(ZoneOffset.UTC) * 1000 + Duration.ofHours(2).toMillis();
+
+        assertEquals(3, paymentAggregateStore.summarize(at(0), at(2999), horizon - 1)
+                .await().indefinitely().getDefaultPayment().getTotalRequests());
+        assertNull(paymentAggregateStore.summarize(at(0), at(2999), horizon).await().indefinitely());
+    }
+
+    @Test
+    void givesUpWhenAnEdgeSecondExpired() {
+        long second = SECOND.toEpochSecond(ZoneOffset.UTC);
+        redis.key().del("payments:agg:DEFAULT:ms:" + second).await().indefinitely();
+
+        assertNull(summarize(500, 2999));
+        // Whole seconds never need the expired buckets
+        assertEquals(3, summarize(0, 2999).getDefaultPayment().getTotalRequests());
+    }
+
+    private PaymentSummary summarize(long fromMillis, long toMillis) {
+        return paymentAggregateStore.summarize(at(fromMillis), at(toMillis), NOW).await().indefinitely();
+    }
+
+    private static PaymentRequest payment(long id, PaymentStrategy strategy, long offsetMillis, double amount) {
+        PaymentRequest paymentRequest = new PaymentRequest(new UUID(0, id).toString(), amount, at(offsetMillis));
+        paymentRequest.setPaymentStrategy(strategy);
+        return paymentRequest;
+    }
+
+    private static LocalDateTime at(long offsetMillis) {
+        return SECOND.plusNanos(offsetMillis * 1_000_000);
+    }
+}
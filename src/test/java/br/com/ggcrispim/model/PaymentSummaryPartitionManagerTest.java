@@ -0,0 +1,49 @@
+package br.com.ggcrispim.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PaymentSummaryPartitionManagerTest {
+
+    @Test
+    void namesPartitionAfterItsStart() {
+        assertEquals("payment_summary_p20250715_1400",
+                PaymentSummaryPartitionManager.partitionName(LocalDateTime.of(2025, 7, 15, 14, 0)));
+    }
+
+    @Test
+    void readsStartBackFromName() {
+        LocalDateTime start = LocalDateTime.of(2025, 12, 31, 23, 45);
+
+        assertEquals(start, PaymentSummaryPartitionManager.partitionStart(PaymentSummaryPartitionManager.partitionName(start)));
+    }
+
+    @Test
+    void ignoresPartitionsNotCreatedByTheManager() {
+        assertNull(PaymentSummaryPartitionManager.partitionStart("payment_summary_default"));
+        assertNull(PaymentSummaryPartitionManager.partitionStart("payment_summary_p2025"));
+        assertNull(PaymentSummaryPartitionManager.partitionStart("payment_summary_p20251340_0000"));
+        assertNull(PaymentSummaryPartitionManager.partitionStart("payment_summary_staging"));
+    }
+
+    @Test
+    void floorsToIntervalStart() {
+        LocalDateTime time = LocalDateTime.of(2025, 7, 15, 14, 37, 12, 500_000_000);
+
+        assertEquals(LocalDateTime.of(2025, 7, 15, 14, 0), PaymentSummaryPartitionManager.floor(time, Duration.ofHours(1)));
+        assertEquals(LocalDateTime.of(2025, 7, 15, 14, 30), PaymentSummaryPartitionManager.floor(time, Duration.ofMinutes(15)));
+        assertEquals(LocalDateTime.of(2025, 7, 15, 0, 0), PaymentSummaryPartitionManager.floor(time, Duration.ofDays(1)));
+    }
+
+    @Test
+    void keepsIntervalStartAsIs() {
+        LocalDateTime start = LocalDateTime.of(2025, 7, 15, 14, 0);
+
+        assertEquals(start, PaymentSummaryPartitionManager.floor(start, Duration.ofHours(1)));
+    }
+}
@@ -0,0 +1,68 @@
+package br.com.ggcrispim.queue;
+
+import br.com.ggcrispim.dto.PaymentRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryPaymentQueueTest {
+
+    private InMemoryPaymentQueue queue;
+
+    @BeforeEach
+    void createQueue() {
+        queue = new InMemoryPaymentQueue();
+        queue.capacity = 16;
+        queue.init();
+        queue.enqueue(payment(1)).await().indefinitely();
+        queue.enqueue(payment(2)).await().indefinitely();
+    }
+
+    @Test
+    void tracksDeliveredEntriesUntilAcked() {
+        List<QueuedPayment> batch = queue.poll("lane-0", 10).await().indefinitely();
+        assertEquals(2, batch.size());
+        assertEquals(Long.valueOf(2), queue.pendingCount().await().indefinitely());
+
+        queue.ack(List.of(batch.get(0).id())).await().indefinitely();
+        assertEquals(Long.valueOf(1), queue.pendingCount().await().indefinitely());
+
+        // Acking an id twice must not push the count below what is really pending
+        queue.ack(List.of(batch.get(0).id())).await().indefinitely();
+        assertEquals(Long.valueOf(1), queue.pendingCount().await().indefinitely());
+    }
+
+    @Test
+    void reclaimsUnackedEntriesOnce() {
+        List<QueuedPayment> batch = queue.poll("lane-0", 10).await().indefinitely();
+        queue.ack(List.of(batch.get(0).id())).await().indefinitely();
+
+        List<QueuedPayment> reclaimed = queue.reclaim("reclaimer", Duration.ZERO, 10).await().indefinitely();
+        assertEquals(1, reclaimed.size());
+        assertEquals(batch.get(1).id(), reclaimed.get(0).id());
+
+        // Reclaiming redelivers, so the entry is not idle any more
+        assertTrue(queue.reclaim("reclaimer", Duration.ofMinutes(1), 10).await().indefinitely().isEmpty());
+
+        queue.ack(List.of(reclaimed.get(0).id())).await().indefinitely();
+        assertEquals(Long.valueOf(0), queue.pendingCount().await().indefinitely());
+    }
+
+    @Test
+    void leavesRecentDeliveriesAlone() {
+        queue.poll("lane-0", 10).await().indefinitely();
+
+        assertTrue(queue.reclaim("reclaimer", Duration.ofMinutes(1), 10).await().indefinitely().isEmpty());
+    }
+
+    private static PaymentRequest payment(long id) {
+        return new PaymentRequest(new UUID(0, id).toString(), 10.00, LocalDateTime.of(2025, 7, 15, 14, 0));
+    }
+}
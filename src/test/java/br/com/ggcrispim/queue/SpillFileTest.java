@@ -0,0 +1,80 @@
+package br.com.ggcrispim.queue;
+
+import br.com.ggcrispim.dto.PaymentRequest;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SpillFileTest {
+
+    private static final LocalDateTime REQUESTED_AT = LocalDateTime.of(2025, 7, 15, 14, 0);
+
+    @Test
+    void readsAgainUntilCommitted() throws IOException {
+        SpillFile spillFile = new SpillFile(Files.createTempFile("spill", ".bin"));
+        PaymentRequest first = payment(1);
+        PaymentRequest second = payment(2);
+        spillFile.append(List.of(first, second));
+
+        assertEquals(1, spillFile.read(1).size());
+        assertEquals(first.getCorrelationId(), spillFile.read(1).get(0).getCorrelationId());
+        assertEquals(2, spillFile.pending());
+
+        spillFile.commit(1);
+
+        List<PaymentRequest> rest = spillFile.read(10);
+        assertEquals(1, rest.size());
+        assertEquals(second.getCorrelationId(), rest.get(0).getCorrelationId());
+        assertEquals(1, spillFile.pending());
+    }
+
+    @Test
+    void truncatesOnceEverythingIsCommitted() throws IOException {
+        Path path = Files.createTempFile("spill", ".bin");
+        SpillFile spillFile = new SpillFile(path);
+        spillFile.append(List.of(payment(1), payment(2)));
+
+        spillFile.commit(spillFile.read(10).size());
+
+        assertEquals(0, spillFile.pending());
+        assertEquals(0, Files.size(path));
+    }
+
+    @Test
+    void replaysUncommittedRecordsAfterRestart() throws IOException {
+        Path path = Files.createTempFile("spill", ".bin");
+        SpillFile spillFile = new SpillFile(path);
+        spillFile.append(List.of(payment(1)));
+        spillFile.read(1);
+
+        SpillFile reopened = new SpillFile(path);
+
+        assertEquals(1, reopened.pending());
+        assertEquals(payment(1).getCorrelationId(), reopened.read(1).get(0).getCorrelationId());
+    }
+
+    @Test
+    void resumesAfterCommittedRecordsOnRestart() throws IOException {
+        Path path = Files.createTempFile("spill", ".bin");
+        SpillFile spillFile = new SpillFile(path);
+        spillFile.append(List.of(payment(1), payment(2), payment(3)));
+        spillFile.read(2);
+        spillFile.commit(2);
+
+        SpillFile reopened = new SpillFile(path);
+
+        assertEquals(1, reopened.pending());
+        assertEquals(payment(3).getCorrelationId(), reopened.read(10).get(0).getCorrelationId());
+    }
+
+    private static PaymentRequest payment(long id) {
+        return new PaymentRequest(new UUID(0, id).toString(), 10, REQUESTED_AT);
+    }
+}
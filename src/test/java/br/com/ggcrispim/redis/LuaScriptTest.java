@@ -0,0 +1,29 @@
+package br.com.ggcrispim.redis;
+
+import io.quarkus.redis.datasource.ReactiveRedisDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@QuarkusTest
+@TestProfile(RedisTestProfile.class)
+class LuaScriptTest {
+
+    private static final LuaScript ECHO = new LuaScript("return ARGV[1] .. KEYS[1]");
+
+    @Inject
+    ReactiveRedisDataSource redis;
+
+    @Test
+    void loadsScriptRedisDoesNotKnow() {
+        redis.execute("SCRIPT", "FLUSH").await().indefinitely();
+
+        assertEquals("ab", ECHO.execute(redis, "1", "b", "a").await().indefinitely().toString());
+        // Loaded now, so this one is a plain EVALSHA
+        assertEquals("cd", ECHO.execute(redis, "1", "d", "c").await().indefinitely().toString());
+        assertEquals(1, redis.execute("SCRIPT", "EXISTS", ECHO.sha()).await().indefinitely().get(0).toInteger());
+    }
+}
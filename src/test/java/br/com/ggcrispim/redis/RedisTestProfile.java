@@ -0,0 +1,25 @@
+package br.com.ggcrispim.redis;
+
+import io.quarkus.test.junit.QuarkusTestProfile;
+
+import java.util.Map;
+
+/**
+ * Starts a throwaway Redis through dev services, for tests that run the Lua scripts for
+ * real. Needs a container runtime, like any dev service.
+ */
+public class RedisTestProfile implements QuarkusTestProfile {
+
+    @Override
+    public Map<String, String> getConfigOverrides() {
+        return Map.of(
+                "quarkus.devservices.enabled", "true",
+                "quarkus.redis.devservices.enabled", "true",
+                // An empty value unsets the %test address, which is what lets dev services start
+                "quarkus.redis.hosts", "",
+                "payment.summary.source", "redis",
+                "payment.retry.base-delay", "1ms",
+                "payment.retry.max-delay", "1ms",
+                "payment.retry.visibility", "200ms");
+    }
+}
@@ -0,0 +1,87 @@
+package br.com.ggcrispim.service;
+
+import br.com.ggcrispim.model.PaymentStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long MILLI = 1_000_000;
+
+    private AdaptiveConcurrencyLimiter limiter;
+    private long start;
+
+    @BeforeEach
+    void setUp() {
+        limiter = new AdaptiveConcurrencyLimiter(new SimpleMeterRegistry(), 20, 4, 128, 0.5, 2.0);
+        start = System.nanoTime() + MILLI;
+    }
+
+    @Test
+    void backsOffOnDroppedCall() {
+        limiter.onSample(PaymentStrategy.DEFAULT, start, start + MILLI, true);
+
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    void backsOffOncePerRoundTrip() {
+        // Three calls in flight together all come back slow
+        limiter.onSample(PaymentStrategy.DEFAULT, start, start + 10 * MILLI, false);
+        limiter.onSample(PaymentStrategy.DEFAULT, start, start + 100 * MILLI, false);
+        limiter.onSample(PaymentStrategy.DEFAULT, start + MILLI, start + 101 * MILLI, true);
+
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    void backsOffAgainForCallsStartedAfterTheDecrease() {
+        limiter.onSample(PaymentStrategy.DEFAULT, start, start + MILLI, true);
+        limiter.onSample(PaymentStrategy.DEFAULT, start + 2 * MILLI, start + 3 * MILLI, true);
+
+        assertEquals(5, limiter.getLimit());
+    }
+
+    @Test
+    void neverGoesBelowMinimum() {
+        for (int i = 0; i < 20; i++) {
+            long callStart = start + i * 2 * MILLI;
+            limiter.onSample(PaymentStrategy.DEFAULT, callStart, callStart + MILLI, true);
+        }
+
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    void keepsBaselinePerProcessor() {
+        // A fallback that is always 5x slower than the default is not a latency spike on its own
+        limiter.onSample(PaymentStrategy.DEFAULT, start, start + MILLI, false);
+        limiter.onSample(PaymentStrategy.FALLBACK, start, start + 5 * MILLI, false);
+        limiter.onSample(PaymentStrategy.FALLBACK, start + MILLI, start + 6 * MILLI, false);
+
+        assertEquals(20, limiter.getLimit());
+
+        limiter.onSample(PaymentStrategy.DEFAULT, start + 2 * MILLI, start + 7 * MILLI, false);
+
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    void ignoresCallsWithoutProcessor() {
+        limiter.onSample(null, start, start + MILLI, true);
+
+        assertEquals(20, limiter.getLimit());
+    }
+
+    @Test
+    void doesNotGrowWhileIdle() {
+        for (int i = 0; i < 100; i++) {
+            limiter.onSample(PaymentStrategy.DEFAULT, start, start + MILLI, false);
+        }
+
+        assertEquals(20, limiter.getLimit());
+    }
+}
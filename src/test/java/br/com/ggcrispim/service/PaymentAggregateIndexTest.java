@@ -0,0 +1,107 @@
+package br.com.ggcrispim.service;
+
+import br.com.ggcrispim.dto.PaymentSummary;
+import br.com.ggcrispim.model.PaymentStrategy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PaymentAggregateIndexTest {
+
+    // 10ms buckets, 4 buckets per segment (40ms), a ring of 4 segments (160ms)
+    private static final long BASE = 1_752_588_000_000L;
+
+    private PaymentAggregateIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new PaymentAggregateIndex(Duration.ofMillis(10), 16, 4);
+    }
+
+    @Test
+    void sumsPerStrategy() {
+        index.record(PaymentStrategy.DEFAULT, BASE + 1, 1990);
+        index.record(PaymentStrategy.DEFAULT, BASE + 25, 10);
+        index.record(PaymentStrategy.FALLBACK, BASE + 30, 500);
+
+        PaymentSummary summary = index.summarize(at(BASE), at(BASE + 39));
+
+        assertEquals(2, summary.getDefaultPayment().getTotalRequests());
+        assertEquals(20.00, summary.getDefaultPayment().getTotalAmount());
+        assertEquals(1, summary.getFallbackPayment().getTotalRequests());
+        assertEquals(5.00, summary.getFallbackPayment().getTotalAmount());
+    }
+
+    @Test
+    void resolvesEdgesToWholeBuckets() {
+        index.record(PaymentStrategy.DEFAULT, BASE + 9, 100);
+        index.record(PaymentStrategy.DEFAULT, BASE + 10, 100);
+        index.record(PaymentStrategy.DEFAULT, BASE + 20, 100);
+
+        // The bucket holding each bound counts whole, so [+5, +15] takes buckets 0 and 1
+        assertEquals(2, count(index.summarize(at(BASE + 5), at(BASE + 15))));
+        assertEquals(1, count(index.summarize(at(BASE + 10), at(BASE + 19))));
+        assertEquals(0, count(index.summarize(at(BASE + 30), at(BASE + 39))));
+    }
+
+    @Test
+    void sumsAcrossSegments() {
+        for (int millis = 0; millis < 160; millis += 10) {
+            index.record(PaymentStrategy.DEFAULT, BASE + millis, 100);
+        }
+
+        // Last bucket of the first segment through the first bucket of the last one
+        assertEquals(10, count(index.summarize(at(BASE + 30), at(BASE + 129))));
+        assertEquals(16, count(index.summarize(at(BASE), at(BASE + 159))));
+    }
+
+    @Test
+    void answersEmptyRange() {
+        index.record(PaymentStrategy.DEFAULT, BASE, 100);
+
+        assertEquals(0, count(index.summarize(at(BASE + 10), at(BASE))));
+    }
+
+    @Test
+    void refusesRangeWiderThanTheRing() {
+        assertNull(index.summarize(at(BASE), at(BASE + 160)));
+        assertNotNull(index.summarize(at(BASE), at(BASE + 159)));
+    }
+
+    @Test
+    void refusesRangeReachingIntoRecycledSegment() {
+        index.record(PaymentStrategy.DEFAULT, BASE, 100);
+        // Segment 4 takes the slot of segment 0
+        index.record(PaymentStrategy.DEFAULT, BASE + 160, 100);
+
+        assertNull(index.summarize(at(BASE), at(BASE + 39)));
+        assertNull(index.summarize(at(BASE + 39), at(BASE + 160)));
+        assertEquals(1, count(index.summarize(at(BASE + 40), at(BASE + 199))));
+    }
+
+    @Test
+    void refusesRangeHoldingPaymentOlderThanTheRing() {
+        index.record(PaymentStrategy.DEFAULT, BASE + 160, 100);
+        // Arrives after its slot moved on: dropped, and its segment marked incomplete
+        index.record(PaymentStrategy.DEFAULT, BASE + 5, 100);
+
+        assertNull(index.summarize(at(BASE), at(BASE + 39)));
+        assertEquals(1, count(index.summarize(at(BASE + 40), at(BASE + 199))));
+    }
+
+    private static int count(PaymentSummary summary) {
+        return summary.getDefaultPayment().getTotalRequests() + summary.getFallbackPayment().getTotalRequests();
+    }
+
+    private static LocalDateTime at(long epochMillis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochMillis, 1000),
+                (int) Math.floorMod(epochMillis, 1000) * 1_000_000, ZoneOffset.UTC);
+    }
+}
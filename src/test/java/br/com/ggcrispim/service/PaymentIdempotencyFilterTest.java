@@ -0,0 +1,26 @@
+package br.com.ggcrispim.service;
+
+import br.com.ggcrispim.model.PaymentStrategy;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PaymentIdempotencyFilterTest {
+
+    @Test
+    void readsProcessorOfPaidPayment() {
+        assertEquals(PaymentStrategy.DEFAULT, PaymentIdempotencyFilter.paidWith("p" + PaymentStrategy.DEFAULT.ordinal()));
+        assertEquals(PaymentStrategy.FALLBACK, PaymentIdempotencyFilter.paidWith("p" + PaymentStrategy.FALLBACK.ordinal()));
+    }
+
+    @Test
+    void treatsClaimedOrUnknownStateAsUnpaid() {
+        assertNull(PaymentIdempotencyFilter.paidWith(null));
+        assertNull(PaymentIdempotencyFilter.paidWith("c"));
+        assertNull(PaymentIdempotencyFilter.paidWith("1"));
+        assertNull(PaymentIdempotencyFilter.paidWith("p"));
+        assertNull(PaymentIdempotencyFilter.paidWith("p9"));
+        assertNull(PaymentIdempotencyFilter.paidWith("px"));
+    }
+}
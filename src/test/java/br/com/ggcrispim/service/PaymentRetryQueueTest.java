@@ -0,0 +1,108 @@
+package br.com.ggcrispim.service;
+
+import br.com.ggcrispim.dto.PaymentRequest;
+import br.com.ggcrispim.model.PaymentStrategy;
+import br.com.ggcrispim.redis.RedisTestProfile;
+import io.quarkus.redis.datasource.ReactiveRedisDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the lease script against a real Redis, with millisecond backoff and a 200ms lease.
+ * Polls pass their own time, a second past scheduling, so no test waits on the wall clock.
+ */
+@QuarkusTest
+@TestProfile(RedisTestProfile.class)
+class PaymentRetryQueueTest {
+
+    private static final String CORRELATION_ID = "4a7901b8-7d26-4d9d-aa19-4dc1c7cf60b3";
+    // payment.retry.visibility in RedisTestProfile
+    private static final long VISIBILITY_MILLIS = 200;
+
+    @Inject
+    PaymentRetryQueue paymentRetryQueue;
+
+    @Inject
+    ReactiveRedisDataSource redis;
+
+    @BeforeEach
+    void clear() {
+        redis.flushall().await().indefinitely();
+    }
+
+    @Test
+    void leasesDueEntryToOnePollOnly() {
+        assertTrue(paymentRetryQueue.schedule(payment(), 1, new RuntimeException("down")).await().indefinitely());
+        long now = afterBackoff();
+
+        List<PaymentRetryQueue.RetryEntry> leased = poll(now);
+        assertEquals(1, leased.size());
+        assertEquals(CORRELATION_ID, leased.get(0).paymentRequest().getCorrelationId());
+        assertEquals(1, leased.get(0).attempt());
+        assertEquals(0, poll(now).size());
+    }
+
+    @Test
+    void leavesEntryAloneUntilDue() {
+        paymentRetryQueue.schedule(payment(), 1, new RuntimeException("down")).await().indefinitely();
+
+        assertEquals(0, poll(System.currentTimeMillis() - 1_000).size());
+    }
+
+    @Test
+    void handsEntryOutAgainOnceLeaseExpires() {
+        paymentRetryQueue.schedule(payment(), 1, new RuntimeException("down")).await().indefinitely();
+        long now = afterBackoff();
+        poll(now);
+
+        assertEquals(0, poll(now + VISIBILITY_MILLIS - 1).size());
+        assertEquals(1, poll(now + VISIBILITY_MILLIS).size());
+    }
+
+    @Test
+    void completedEntryIsGone() {
+        paymentRetryQueue.schedule(payment(), 1, new RuntimeException("down")).await().indefinitely();
+        long now = afterBackoff();
+        PaymentRetryQueue.RetryEntry entry = poll(now).get(0);
+
+        paymentRetryQueue.complete(entry).await().indefinitely();
+
+        assertEquals(0, poll(now + VISIBILITY_MILLIS).size());
+        assertEquals(0L, redis.sortedSet(byte[].class).zcard("payments:retry").await().indefinitely());
+    }
+
+    @Test
+    void keepsPersistOnlyEntriesAndTheirProcessor() {
+        PaymentRequest paymentRequest = payment();
+        paymentRequest.setPaymentStrategy(PaymentStrategy.FALLBACK);
+        paymentRetryQueue.schedulePersist(paymentRequest, 2, new RuntimeException("db down")).await().indefinitely();
+
+        PaymentRetryQueue.RetryEntry entry = poll(afterBackoff()).get(0);
+
+        assertTrue(entry.processed());
+        assertEquals(PaymentStrategy.FALLBACK, entry.paymentRequest().getPaymentStrategy());
+        assertEquals(2, entry.attempt());
+    }
+
+    // Well past the millisecond backoff of any attempt these tests schedule
+    private static long afterBackoff() {
+        return System.currentTimeMillis() + 1_000;
+    }
+
+    private List<PaymentRetryQueue.RetryEntry> poll(long now) {
+        return paymentRetryQueue.pollDue(10, now).await().indefinitely();
+    }
+
+    private static PaymentRequest payment() {
+        return new PaymentRequest(CORRELATION_ID, 19.90, LocalDateTime.of(2025, 7, 15, 14, 0, 0, 123_000_000));
+    }
+}
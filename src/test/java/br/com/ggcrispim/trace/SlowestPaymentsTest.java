@@ -0,0 +1,90 @@
+package br.com.ggcrispim.trace;
+
+import br.com.ggcrispim.dto.PaymentRequest;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlowestPaymentsTest {
+
+    private static final long MILLI = 1_000_000;
+
+    @Test
+    void keepsSlowestFirst() {
+        SlowestPayments slowest = new SlowestPayments(3);
+        for (int millis : new int[] {5, 1, 9, 3, 7, 2}) {
+            slowest.offer(trace(millis));
+        }
+
+        assertEquals(List.of(id(9), id(7), id(5)), ids(slowest.snapshot()));
+    }
+
+    @Test
+    void ranksByOwnStagesNotSharedAck() {
+        SlowestPayments slowest = new SlowestPayments(1);
+        PaymentTrace slowOwn = trace(8);
+        slowOwn.finish(0);
+        PaymentTrace longAck = trace(2);
+        // Acked later in a bigger batch: a larger total, but less time of its own
+        longAck.finish(50 * MILLI);
+
+        slowest.offer(slowOwn);
+        slowest.offer(longAck);
+
+        assertEquals(List.of(id(8)), ids(slowest.snapshot()));
+    }
+
+    @Test
+    void keepsCapacityUnderConcurrentOffers() throws InterruptedException {
+        SlowestPayments slowest = new SlowestPayments(4);
+        Thread[] lanes = new Thread[4];
+        for (int lane = 0; lane < lanes.length; lane++) {
+            int offset = lane;
+            lanes[lane] = new Thread(() -> {
+                for (int millis = 1 + offset; millis <= 40; millis += lanes.length) {
+                    slowest.offer(trace(millis));
+                }
+            });
+            lanes[lane].start();
+        }
+        for (Thread lane : lanes) {
+            lane.join();
+        }
+
+        List<PaymentTrace.Snapshot> snapshot = slowest.snapshot();
+        assertEquals(4, snapshot.size());
+        assertTrue(snapshot.get(0).ownMillis() >= 40);
+        assertTrue(snapshot.get(3).ownMillis() >= 37);
+    }
+
+    @Test
+    void clearEmptiesTheTable() {
+        SlowestPayments slowest = new SlowestPayments(2);
+        slowest.offer(trace(10));
+        slowest.clear();
+        slowest.offer(trace(1));
+
+        assertEquals(List.of(id(1)), ids(slowest.snapshot()));
+    }
+
+    // A trace whose persist stage took about that many milliseconds
+    private static PaymentTrace trace(int millis) {
+        PaymentTrace trace = new PaymentTrace(new PaymentRequest(id(millis), 10, LocalDateTime.now()), 0);
+        trace.dispatched();
+        trace.persisted(System.nanoTime() - millis * MILLI);
+        return trace;
+    }
+
+    private static String id(int millis) {
+        return new UUID(0, millis).toString();
+    }
+
+    private static List<String> ids(List<PaymentTrace.Snapshot> snapshots) {
+        return snapshots.stream().map(PaymentTrace.Snapshot::correlationId).toList();
+    }
+}